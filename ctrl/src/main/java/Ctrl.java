@@ -1,12 +1,17 @@
+import java.util.concurrent.CompletableFuture;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
-import registration.UserManager;
 import registration.UserSession;
-import landingpage.LandingPageController; // Import this!
+import utils.FxStallDetector;
+import utils.GlobalVideoManager;
+import utils.Metrics;
+import utils.MongoDBConnection;
+import utils.SceneNavigator;
+import utils.StartupOrchestrator;
+import utils.VideoPowerGovernor;
+import utils.WeatherService;
 /**
  *
  * @author ekitstrap
@@ -18,48 +23,56 @@ public class Ctrl extends Application {
         // 1. REMOVE WINDOW BORDERS (Minimize/Close buttons)
         // This must be done before the stage is shown!
         stage.initStyle(StageStyle.UNDECORATED);
-        
-        // 1. Try to restore previous session
-        UserManager userManager = new UserManager();
-        boolean isLoggedIn = UserSession.getInstance().restoreSession(userManager);
+        SceneNavigator.init(stage);
+        GlobalVideoManager.followWeather();
+        VideoPowerGovernor.install(stage); // Pause the video when nobody can see it
+        Metrics.start(); // JMX + cache/metrics.txt
+        FxStallDetector.install(); // Report slow work on the FX thread to cache/fx-stalls.txt
 
+        // 2. Independent startup work runs in parallel, off the FX thread
+        StartupOrchestrator startup = new StartupOrchestrator(4);
+        CompletableFuture<Boolean> session = startup.supply("session",
+                () -> UserSession.getInstance().restoreSession()); // Token only, no user store
+        startup.run("mongo", MongoDBConnection::warmUp);
+        startup.run("videos", GlobalVideoManager::preloadAll);
+        CompletableFuture<Void> loginScreen = startup.run("fxml login",
+                () -> SceneNavigator.preload(SceneNavigator.Screen.LOGIN));
+        CompletableFuture<Void> landingScreen = startup.run("fxml landing",
+                () -> SceneNavigator.preload(SceneNavigator.Screen.LANDING));
+
+        // The first weather fetch waits for the session, so it includes the user's location
+        startup.runAfter(session, "weather", () -> WeatherService.start().join());
+        // The full user store loads alongside the first screen instead of before it
+        startup.runAfter(session, "user store", () -> UserSession.getInstance().completeRestore());
+
+        // 3. First frame as soon as the session is known and its screen is built
+        session.exceptionally(error -> false)
+                .thenCompose(isLoggedIn -> (isLoggedIn ? landingScreen : loginScreen).handle((ok, error) -> isLoggedIn))
+                .thenAccept(isLoggedIn -> Platform.runLater(() -> {
+                    showFirstScreen(stage, isLoggedIn);
+                    startup.mark("first frame");
+
+                    // 4. The other screens are built while the user looks at the first one
+                    startup.run("fxml editor", () -> SceneNavigator.preload(SceneNavigator.Screen.EDITOR));
+                    startup.run("fxml summary", () -> SceneNavigator.preload(SceneNavigator.Screen.SUMMARY));
+                    startup.run("fxml register", () -> SceneNavigator.preload(SceneNavigator.Screen.REGISTER));
+                    startup.finish();
+                }));
+    }
+
+    private void showFirstScreen(Stage stage, boolean isLoggedIn) {
         if (isLoggedIn) {
             // A. SESSION FOUND -> Go straight to Landing Page
             System.out.println("Auto-login successful!");
-            openLandingPage(stage);
+            SceneNavigator.show(SceneNavigator.Screen.LANDING);
         } else {
             // B. NO SESSION -> Show Login Screen
-            openLoginPage(stage);
+            SceneNavigator.show(SceneNavigator.Screen.LOGIN);
         }
-    }
-
-    private void openLoginPage(Stage stage) throws Exception {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/registration/Login.fxml"));
-        Parent root = loader.load();
-        Scene scene = new Scene(root);
 
-        stage.setScene(scene);
-        
-        // 3. FORCE FULLSCREEN
+        // FORCE FULLSCREEN (kept across screens, since the Scene never changes)
         stage.setFullScreen(true);
         stage.setFullScreenExitHint(""); // Removes the "Press ESC to exit" text
-        
-        stage.show();
-    }
-
-    private void openLandingPage(Stage stage) throws Exception {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/LandingPage.fxml")); // Correct path?
-        Parent root = loader.load();
-
-        // Pass the restored username to the controller
-        LandingPageController controller = loader.getController();
-        String name = UserSession.getInstance().getCurrentUser().getDisplayName();
-        controller.setUserName(name);
-
-        Scene scene = new Scene(root);
-
-        stage.setScene(scene);
-        stage.setFullScreen(true);
         stage.show();
     }
 
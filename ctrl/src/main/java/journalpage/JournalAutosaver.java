@@ -0,0 +1,213 @@
+package journalpage;
+/**
+ *
+ * @author xuzhe
+ */
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import mood.MoodAnalyzer;
+import org.bson.Document;
+import utils.EnvLoader;
+
+/**
+ * Write-behind autosave for the journal editor.
+ *
+ * Keystrokes only record the latest text per date in memory. A write happens
+ * when typing pauses (debounce), on a fixed schedule while typing goes on,
+ * when the user navigates away, and at shutdown. Edits to the same date are
+ * coalesced, so a burst of typing becomes one local write and, through
+ * JournalSyncWorker, one database write. Mood analysis only runs when the
+ * text differs from what is already saved.
+ *
+ * Each edit remembers the user who typed it and is written to that user's
+ * store, even if the flush runs after a logout or a switch of account.
+ */
+public class JournalAutosaver {
+
+    private static final long DEFAULT_DEBOUNCE_MS = 1500;
+    private static final long DEFAULT_FLUSH_SECONDS = 10;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread t = new Thread(runnable, "journal-autosave");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final long debounceMs = EnvLoader.getLong("AUTOSAVE_DEBOUNCE_MS", DEFAULT_DEBOUNCE_MS);
+
+    // Latest unsaved text per user and date (coalesced) and its pending debounce timer
+    private static final Map<Key, PendingWrite> pending = new ConcurrentHashMap<>();
+    private static final Map<Key, ScheduledFuture<?>> debounceTimers = new ConcurrentHashMap<>();
+    // Flush currently running (or last finished) per user and date
+    private static final Map<Key, CompletableFuture<SaveResult>> flushes = new ConcurrentHashMap<>();
+
+    private static volatile BiConsumer<LocalDate, SaveResult> saveListener = (date, result) -> { };
+
+    static {
+        long interval = EnvLoader.getLong("AUTOSAVE_FLUSH_SECONDS", DEFAULT_FLUSH_SECONDS);
+        scheduler.scheduleWithFixedDelay(JournalAutosaver::flushAll, interval, interval, TimeUnit.SECONDS);
+    }
+
+    private record Key(String email, LocalDate date) { }
+
+    private record PendingWrite(Key key, String text, String weather) { }
+
+    /**
+     * Outcome of a write: the text and mood now stored for the date.
+     * @param text saved text
+     * @param mood saved mood category
+     */
+    public record SaveResult(String text, String mood) { }
+
+    /**
+     * Registers the callback invoked (on the autosave thread) after each
+     * write of the signed-in user. Only the visible editor listens, so
+     * setting it replaces the previous one.
+     * @param listener receives the date and the saved result
+     */
+    public static void setSaveListener(BiConsumer<LocalDate, SaveResult> listener) {
+        saveListener = (listener != null) ? listener : (date, result) -> { };
+    }
+
+    /**
+     * Records an edit of the signed-in user. Returns immediately; the write
+     * happens after the debounce delay unless more edits arrive first.
+     * @param date day of the entry
+     * @param text full current text
+     * @param weather weather label to store with it
+     */
+    public static void schedule(LocalDate date, String text, String weather) {
+        if (date == null || text == null || text.trim().isEmpty()) {
+            return; // Never autosave an empty entry (it would look like a delete)
+        }
+        Key key = keyFor(date);
+        pending.put(key, new PendingWrite(key, text, weather));
+
+        ScheduledFuture<?> timer = scheduler.schedule(() -> flush(key), debounceMs, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = debounceTimers.put(key, timer);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Writes the signed-in user's pending edit of one date now (e.g. on navigation).
+     * @param date day to flush
+     * @return future completed with the saved result, or null if nothing was pending
+     */
+    public static CompletableFuture<SaveResult> flush(LocalDate date) {
+        return flush(keyFor(date));
+    }
+
+    private static CompletableFuture<SaveResult> flush(Key key) {
+        CompletableFuture<SaveResult> future = new CompletableFuture<>();
+        flushes.put(key, future);
+        scheduler.execute(() -> {
+            try {
+                future.complete(write(key, true));
+            } catch (Throwable e) {
+                System.err.println("Autosave failed for " + key.date() + ": " + e.getMessage());
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Flushes every date with pending edits, of every user.
+     */
+    public static void flushAll() {
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            flush(key);
+        }
+    }
+
+    /**
+     * Future that completes once any flush already started for the date has
+     * finished, so a reload does not read text older than what was typed.
+     * @param date day about to be loaded
+     * @return future that completes after pending writes of that date
+     */
+    public static CompletableFuture<Void> whenFlushed(LocalDate date) {
+        Key key = keyFor(date);
+        CompletableFuture<SaveResult> inFlight = flushes.get(key);
+        if (pending.containsKey(key)) {
+            inFlight = flush(key);
+        }
+        if (inFlight == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return inFlight.handle((result, error) -> null);
+    }
+
+    /**
+     * Writes everything still pending on the calling thread, without mood
+     * analysis. Called at shutdown; entries saved this way keep their previous
+     * mood (or "Unknown") until the next edit or a mood backfill.
+     */
+    static void drain() {
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            try {
+                write(key, false);
+            } catch (RuntimeException e) {
+                System.err.println("Autosave failed for " + key.date() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Runs on the autosave thread (or the shutdown hook)
+    private static SaveResult write(Key key, boolean analyzeMood) {
+        PendingWrite write = pending.remove(key);
+        ScheduledFuture<?> timer = debounceTimers.remove(key);
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        if (write == null) {
+            return null; // Already written by an earlier flush
+        }
+
+        // Skip the write (and the mood call) if nothing really changed
+        String email = key.email();
+        LocalDate date = key.date();
+        Document saved = journalApp.getJournalDocument(email, date);
+        String savedText = (saved != null) ? saved.getString("entry") : null;
+        String savedMood = (saved != null) ? saved.getString("mood") : null;
+        if (write.text().equals(savedText)) {
+            return new SaveResult(savedText, savedMood);
+        }
+
+        String mood = (savedMood != null) ? savedMood : "Unknown";
+        if (analyzeMood) {
+            String analyzed = MoodAnalyzer.analyzeMood(write.text());
+            if (analyzed != null && !analyzed.startsWith("Error")) {
+                mood = journalApp.extractMoodCategory(analyzed);
+            }
+        }
+
+        journalApp.saveJournal(email, date, write.text(), write.weather(), mood);
+        SaveResult result = new SaveResult(write.text(), mood);
+        if (email.equals(journalApp.getCurrentUserEmail())) {
+            saveListener.accept(date, result); // Not into the editor of whoever signed in since
+        }
+        return result;
+    }
+
+    private static Key keyFor(LocalDate date) {
+        return new Key(journalApp.getCurrentUserEmail(), date);
+    }
+
+    /**
+     * @return number of dates with unsaved edits
+     */
+    public static int getPendingCount() {
+        return pending.size();
+    }
+}
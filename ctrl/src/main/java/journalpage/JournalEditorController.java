@@ -4,32 +4,30 @@ package journalpage;
  * @author ekitstrap
  * @author xuzhe
  */
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Pos;
-import javafx.scene.Node;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
-import javafx.stage.Stage;
 import javafx.event.ActionEvent;
 import javafx.scene.input.KeyCode;
 
 import org.bson.Document; // Import BSON Document
-import registration.UserSession;
 import mood.MoodAnalyzer;
+import utils.SceneNavigator;
+import utils.ScreenLifecycle;
+import utils.TaskScheduler;
 import utils.WeatherBackgroundManager;
-import landingpage.LandingPageController;
 
-public class JournalEditorController {
+public class JournalEditorController implements ScreenLifecycle {
 
     @FXML
     private DatePicker datePicker;
@@ -49,6 +47,24 @@ public class JournalEditorController {
     private LocalDate selectedDate;
     private String currentWeather = "Unknown";
 
+    // Weather and mood lookups; cancelled when the editor is hidden
+    private final TaskScheduler.Scope tasks = TaskScheduler.scope("editor");
+
+    // --- TIMELINE PAGING ---
+    private static final int TIMELINE_PAGE_SIZE = 40;
+    // Start fetching the next page when this many rows are left below the viewport
+    private static final int TIMELINE_PREFETCH_ROWS = 5;
+    private String timelineCursor = null;      // date of the last loaded row
+    private boolean timelineExhausted = false;
+    private boolean timelineLoading = false;
+    private int timelineGeneration = 0;        // bumped on refresh to drop stale pages
+
+    // Entry load in flight; replaced (and cancelled) when another date is picked
+    private CompletableFuture<Document> pendingLoad;
+
+    // True while the text area is filled from storage, so it is not autosaved back
+    private boolean applyingLoadedText = false;
+
     private static class TimelineEntry {
 
         LocalDate date;
@@ -72,17 +88,29 @@ public class JournalEditorController {
 
         // Handle Date Picking
         datePicker.setOnAction(event -> {
+            if (datePicker.getValue() == null || datePicker.getValue().equals(selectedDate)) {
+                return;
+            }
+            // Write what was typed for the previous date before moving on
+            if (selectedDate != null) {
+                JournalAutosaver.flush(selectedDate);
+            }
             selectedDate = datePicker.getValue();
             loadJournalForDate(selectedDate);
             selectDateInTimeline(selectedDate);
         });
+
+        // Autosave: typing only queues the text; writes happen in the background
+        journalTextArea.textProperty().addListener((obs, oldText, newText) -> {
+            if (!applyingLoadedText && journalTextArea.isEditable()) {
+                JournalAutosaver.schedule(selectedDate, newText, currentWeather);
+                statusLabel.setText("Editing...");
+            }
+        });
+        JournalAutosaver.setSaveListener((date, result) -> Platform.runLater(() -> onAutosaved(date, result)));
         
 
         setupTimelineCellFactory();
-        refreshTimeline();
-
-        // Load initial data
-        loadJournalForDate(selectedDate);
 
         // Handle Timeline Clicks
         timelineListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
@@ -90,58 +118,97 @@ public class JournalEditorController {
                 datePicker.setValue(newVal.date);
             }
         });
-        
-        Platform.runLater(() -> {
-            Scene scene = journalTextArea.getScene();
-            if (scene != null) {
-                scene.setOnKeyPressed(event -> {
-                    if (event.getCode() == KeyCode.ESCAPE) {
-                        returnToLandingPage();
-                    }
-                });
-            }
-        });
     }
-    
-    // --- NAVIGATION HELPER (NEW) ---
-    private void returnToLandingPage() {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/Landingpage.fxml"));
-            Parent root = loader.load();
-
-            // Use journalTextArea to find the current stage
-            Stage stage = (Stage) journalTextArea.getScene().getWindow();
-            
-            LandingPageController controller = loader.getController();
-            if (UserSession.getInstance().getCurrentUser() != null) {
-                controller.setUserName(UserSession.getInstance().getCurrentUser().getDisplayName());
-            }
 
-            stage.setScene(new Scene(root));
-            stage.setFullScreenExitHint("");
-            stage.setFullScreen(true);
+    // Runs on every visit, since the screen is cached by SceneNavigator
+    @Override
+    public void onShow() {
+        // Always open on today, with a fresh timeline
+        selectedDate = LocalDate.now();
+        datePicker.setValue(selectedDate);
+        refreshTimeline();
+        loadJournalForDate(selectedDate);
 
-        } catch (IOException e) {
-            System.err.println("Error loading Landing Page.");
+        Scene scene = journalTextArea.getScene();
+        if (scene != null) {
+            scene.setOnKeyPressed(event -> {
+                if (event.getCode() == KeyCode.ESCAPE) {
+                    returnToLandingPage();
+                }
+            });
         }
     }
 
+    @Override
+    public void onHide() {
+        // Nothing typed is lost when leaving the editor
+        JournalAutosaver.flushAll();
+        tasks.cancelAll();
+    }
+    
+    // --- NAVIGATION HELPER (NEW) ---
+    private void returnToLandingPage() {
+        SceneNavigator.show(SceneNavigator.Screen.LANDING);
+    }
+
     // --- CORE LOGIC FIXES ---
     private void loadJournalForDate(LocalDate date) {
         if (date == null) {
             return;
         }
 
-        // FIX: Use journalApp to get the document directly
-        Document doc = journalApp.getJournalDocument(date);
+        // Drop the previous load if the user moved on before it finished
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+        }
 
+        showLoadingState(date);
+        // Let an autosave of this date land first, so the reload shows the latest text
+        CompletableFuture<Document> load = new CompletableFuture<>();
+        JournalAutosaver.whenFlushed(date)
+                .thenCompose(ignored -> load.isDone() ? load : JournalService.loadEntry(date))
+                .whenComplete((doc, error) -> {
+                    if (error != null) {
+                        load.completeExceptionally(error);
+                    } else {
+                        load.complete(doc);
+                    }
+                });
+        pendingLoad = load;
+
+        load.whenCompleteAsync((doc, error) -> {
+            if (load != pendingLoad || load.isCancelled()) {
+                return; // A newer date was picked in the meantime
+            }
+            pendingLoad = null;
+            journalTextArea.setEditable(true);
+            saveButton.setDisable(false);
+
+            if (error != null) {
+                statusLabel.setText("Could not load entry for " + date);
+                System.err.println("Error loading entry: " + error.getMessage());
+                return;
+            }
+            showJournal(date, doc);
+        }, Platform::runLater);
+    }
+
+    private void showLoadingState(LocalDate date) {
+        journalTextArea.setEditable(false);
+        saveButton.setDisable(true);
+        statusLabel.setText("Loading entry for " + date + "...");
+    }
+
+    private void showJournal(LocalDate date, Document doc) {
         if (doc != null) {
             // Existing Entry
             String entryText = doc.getString("entry");
             String weather = doc.getString("weather");
             String mood = doc.getString("mood");
 
+            applyingLoadedText = true;
             journalTextArea.setText(entryText);
+            applyingLoadedText = false;
 
             currentWeather = (weather != null) ? weather : "Unknown";
             weatherLabel.setText("Weather: " + currentWeather);
@@ -149,7 +216,9 @@ public class JournalEditorController {
             statusLabel.setText("Loaded entry for " + date);
         } else {
             // New Entry (Clean Slate)
+            applyingLoadedText = true;
             journalTextArea.clear();
+            applyingLoadedText = false;
             moodLabel.setText("Mood: -");
             statusLabel.setText("New entry for " + date);
 
@@ -175,40 +244,28 @@ public class JournalEditorController {
         saveButton.setDisable(true);
         statusLabel.setText("Saving...");
 
-        new Thread(() -> {
-            try {
-                // Analyze Mood
-                String analyzedMood = "Unknown";
-                try {
-                    analyzedMood = journalApp.extractMoodCategory(MoodAnalyzer.analyzeMood(entryText));
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-
-                final String finalMood = analyzedMood;
-
-                // FIX: Call journalApp.saveJournal directly
-                journalApp.saveJournal(selectedDate, entryText, currentWeather, finalMood);
-
-                // Simulation sleep (optional, makes UI feel responsive)
-                Thread.sleep(300);
-
-                Platform.runLater(() -> {
-                    statusLabel.setText("Saved!");
-                    moodLabel.setText("Mood: " + finalMood);
-                    saveButton.setDisable(false);
+        // Same write-behind path as autosave, just without waiting for the debounce
+        LocalDate date = selectedDate;
+        JournalAutosaver.schedule(date, entryText, currentWeather);
+        JournalAutosaver.flush(date).whenCompleteAsync((result, error) -> {
+            saveButton.setDisable(false);
+            if (error != null) {
+                statusLabel.setText("Error: " + error.getMessage());
+            } else if (result != null && date.equals(selectedDate)) {
+                // Already saved by an autosave that finished first
+                onAutosaved(date, result);
+            }
+        }, Platform::runLater);
+    }
 
-                    // Update the sidebar immediately
-                    updateTimelineList(selectedDate, entryText);
-                });
+    private void onAutosaved(LocalDate date, JournalAutosaver.SaveResult result) {
+        // Update the sidebar immediately
+        updateTimelineList(date, result.text());
 
-            } catch (InterruptedException e) {
-                Platform.runLater(() -> {
-                    statusLabel.setText("Error: " + e.getMessage());
-                    saveButton.setDisable(false);
-                });
-            }
-        }).start();
+        if (date.equals(selectedDate)) {
+            statusLabel.setText(JournalAutosaver.getPendingCount() == 0 ? "Saved!" : "Editing...");
+            moodLabel.setText("Mood: " + result.mood());
+        }
     }
 
     // --- HELPER METHODS ---
@@ -231,7 +288,9 @@ public class JournalEditorController {
         } else {
             timelineListView.getSelectionModel().clearSelection();
             datePicker.setValue(today);
+            applyingLoadedText = true;
             journalTextArea.clear();
+            applyingLoadedText = false;
             journalTextArea.setPromptText("Start writing your new entry for today...");
             moodLabel.setText("Mood: -");
             statusLabel.setText("New Draft");
@@ -241,27 +300,21 @@ public class JournalEditorController {
 
     private void fetchWeatherForDate(LocalDate date) {
         weatherLabel.setText("Weather: Loading...");
-        new Thread(() -> {
-            String weather = WeatherBackgroundManager.getWeatherForDate(date);
+        // Switching dates quickly cancels the lookups for the dates already left
+        tasks.io("weather", () -> WeatherBackgroundManager.getWeatherForDate(date), weather -> {
             currentWeather = weather;
-            Platform.runLater(() -> weatherLabel.setText("Weather: " + weather));
-        }).start();
+            weatherLabel.setText("Weather: " + weather);
+        }, null);
     }
 
     // ... (Keep updateTimelineList, setupTimelineCellFactory, handleAnalyzeMood, handleClose as they were) ...
     private void updateTimelineList(LocalDate date, String text) {
         String preview = text.replace("\n", " ").trim();
-        if (preview.length() > 30) {
-            preview = preview.substring(0, 30) + "...";
+        if (preview.length() > journalApp.PREVIEW_LENGTH) {
+            preview = preview.substring(0, journalApp.PREVIEW_LENGTH) + "...";
         }
 
-        TimelineEntry existingEntry = null;
-        for (TimelineEntry item : timelineListView.getItems()) {
-            if (item.date.equals(date)) {
-                existingEntry = item;
-                break;
-            }
-        }
+        TimelineEntry existingEntry = findTimelineEntry(date);
 
         if (existingEntry != null) {
             existingEntry.preview = preview;
@@ -270,7 +323,10 @@ public class JournalEditorController {
             TimelineEntry newEntry = new TimelineEntry(date, preview);
             timelineListView.getItems().add(0, newEntry);
             timelineListView.getItems().sort((a, b) -> b.date.compareTo(a.date));
-            timelineListView.getSelectionModel().select(newEntry);
+            // A late autosave of a date the user already left must not navigate back to it
+            if (date.equals(selectedDate)) {
+                timelineListView.getSelectionModel().select(newEntry);
+            }
         }
     }
 
@@ -296,43 +352,89 @@ public class JournalEditorController {
 
                     container.getChildren().addAll(dateLbl, previewLbl);
                     setGraphic(container);
+
+                    // Reaching the end of what is loaded -> fetch the next page
+                    if (getIndex() >= getListView().getItems().size() - TIMELINE_PREFETCH_ROWS) {
+                        Platform.runLater(JournalEditorController.this::loadNextTimelinePage);
+                    }
                 }
             }
         });
     }
 
     private void refreshTimeline() {
-        // 1. Clear current list
+        // 1. Clear current list and start again from the newest entry
         timelineListView.getItems().clear();
+        timelineCursor = null;
+        timelineExhausted = false;
+        timelineLoading = false;
+        timelineGeneration++;
+
+        // 2. The rest is loaded page by page as the list scrolls
+        loadNextTimelinePage();
+    }
+
+    private void loadNextTimelinePage() {
+        if (timelineLoading || timelineExhausted) {
+            return;
+        }
+        timelineLoading = true;
+        int generation = timelineGeneration;
+
+        // 1. Fetch date + server-side preview only, off the FX thread
+        JournalService.loadTimelinePage(timelineCursor, TIMELINE_PAGE_SIZE)
+                .whenCompleteAsync((page, error) -> {
+                    if (generation != timelineGeneration) {
+                        return; // Timeline was refreshed while this page was loading
+                    }
+                    timelineLoading = false;
+                    if (error != null) {
+                        System.err.println("Error loading timeline: " + error.getMessage());
+                        return;
+                    }
+                    appendTimelinePage(page);
+                }, Platform::runLater);
+    }
 
-        // 2. Fetch real data from MongoDB
-        List<Document> allEntries = journalApp.getAllUserJournals();
+    private void appendTimelinePage(List<Document> page) {
         List<TimelineEntry> uiEntries = new ArrayList<>();
 
-        // 3. Convert Documents to Timeline Entries
-        for (Document doc : allEntries) {
+        // 2. Convert Documents to Timeline Entries
+        for (Document doc : page) {
             try {
                 String dateStr = doc.getString("date");
-                String fullText = doc.getString("entry");
-
-                if (dateStr != null && fullText != null) {
-                    LocalDate date = LocalDate.parse(dateStr); // Assumes yyyy-MM-dd format
-
-                    // Create a short preview
-                    String preview = fullText.replace("\n", " ").trim();
-                    if (preview.length() > 30) {
-                        preview = preview.substring(0, 30) + "...";
-                    }
-
-                    uiEntries.add(new TimelineEntry(date, preview));
+                if (dateStr != null) {
+                    uiEntries.add(new TimelineEntry(LocalDate.parse(dateStr), doc.getString("preview")));
+                    timelineCursor = dateStr;
                 }
             } catch (Exception e) {
                 System.err.println("Skipping invalid entry: " + e.getMessage());
             }
         }
+        timelineExhausted = page.size() < TIMELINE_PAGE_SIZE;
+
+        // 3. Append, skipping dates already added by a save in the meantime
+        List<TimelineEntry> items = timelineListView.getItems();
+        boolean outOfOrder = !items.isEmpty() && !uiEntries.isEmpty()
+                && items.get(items.size() - 1).date.isBefore(uiEntries.get(0).date);
+        for (TimelineEntry entry : uiEntries) {
+            if (findTimelineEntry(entry.date) == null) {
+                items.add(entry);
+            }
+        }
+        if (outOfOrder) {
+            items.sort((a, b) -> b.date.compareTo(a.date));
+        }
+        selectDateInTimeline(selectedDate);
+    }
 
-        // 4. Update the UI
-        timelineListView.getItems().setAll(uiEntries);
+    private TimelineEntry findTimelineEntry(LocalDate date) {
+        for (TimelineEntry item : timelineListView.getItems()) {
+            if (item.date.equals(date)) {
+                return item;
+            }
+        }
+        return null;
     }
 
     private void selectDateInTimeline(LocalDate date) {
@@ -351,31 +453,17 @@ public class JournalEditorController {
         if (entry == null || entry.trim().isEmpty()) {
             return;
         }
-        new Thread(() -> {
-            try {
-                String moodResult = MoodAnalyzer.analyzeMood(entry);
-                Platform.runLater(() -> moodLabel.setText("Mood: " + moodResult));
-            } catch (Exception e) {
-                Platform.runLater(() -> moodLabel.setText("Mood: Error"));
-            }
-        }).start();
+        // Clicking again replaces the running analysis instead of starting a second one
+        Callable<String> analyze = () -> MoodAnalyzer.analyzeMood(entry);
+        if (MoodAnalyzer.usesNetwork()) {
+            tasks.io("mood", analyze, mood -> moodLabel.setText("Mood: " + mood), e -> moodLabel.setText("Mood: Error"));
+        } else {
+            tasks.cpu("mood", analyze, mood -> moodLabel.setText("Mood: " + mood), e -> moodLabel.setText("Mood: Error"));
+        }
     }
 
     @FXML
     private void handleClose(ActionEvent event) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/LandingPage.fxml"));
-            Parent root = loader.load();
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            LandingPageController controller = loader.getController();
-            if (UserSession.getInstance().getCurrentUser() != null) {
-                controller.setUserName(UserSession.getInstance().getCurrentUser().getDisplayName());
-            }
-            stage.setScene(new Scene(root));
-            stage.setFullScreenExitHint("");
-            stage.setFullScreen(true);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        returnToLandingPage();
     }
 }
@@ -0,0 +1,51 @@
+package journalpage;
+/**
+ *
+ * @author xuzhe
+ */
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.result.UpdateResult;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+/**
+ * Schema migrations for the journals collection.
+ */
+public class JournalMigration {
+
+    /**
+     * Adds the typed epochDay field to documents that only have the ISO
+     * "date" string. The conversion runs inside MongoDB as a pipeline update,
+     * so no documents are pulled to the client. Dates that cannot be parsed
+     * get a null epochDay and keep being served by the legacy string filter.
+     *
+     * @param journals the journals collection
+     */
+    public static void migrateEpochDays(MongoCollection<Document> journals) {
+        Bson pending = Filters.and(
+                Filters.exists(journalApp.EPOCH_DAY_FIELD, false),
+                Filters.type("date", "string"));
+
+        Document parsed = new Document("$dateFromString", new Document("dateString", "$date")
+                .append("format", "%Y-%m-%d")
+                .append("timezone", "UTC")
+                .append("onError", null));
+
+        // (parsed - 1970-01-01) / one day, in milliseconds
+        Document epochDay = new Document("$toLong", new Document("$divide", Arrays.asList(
+                new Document("$subtract", Arrays.asList(parsed, new Date(0))),
+                86_400_000L)));
+
+        List<Bson> update = Arrays.asList(
+                new Document("$set", new Document(journalApp.EPOCH_DAY_FIELD, epochDay)));
+
+        UpdateResult result = journals.updateMany(pending, update);
+        if (result.getModifiedCount() > 0) {
+            System.out.println("Migrated " + result.getModifiedCount() + " journal entries to epochDay.");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package journalpage;
+/**
+ *
+ * @author xuzhe
+ */
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.bson.Document;
+
+/**
+ * Asynchronous front for journal storage.
+ * Every call runs on a small dedicated executor and returns a
+ * CompletableFuture, so controllers never block the JavaFX thread on MongoDB
+ * (including the TLS handshake of the very first call).
+ *
+ * Cancelling a returned future before its task starts skips the database
+ * call entirely, which lets controllers drop stale loads cheaply.
+ */
+public class JournalService {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread t = new Thread(runnable, "journal-io-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Loads the full document (Entry, Weather, Mood) for a date.
+     * Completes with null if no entry exists.
+     * @param date the day to load
+     * @return future of the document
+     */
+    public static CompletableFuture<Document> loadEntry(LocalDate date) {
+        return submit(() -> journalApp.getJournalDocument(date));
+    }
+
+    /**
+     * Loads one page of the timeline, see journalApp.getTimelinePage.
+     * @param beforeDate ISO date to continue after, or null for the first page
+     * @param limit maximum number of rows
+     * @return future of the page
+     */
+    public static CompletableFuture<List<Document>> loadTimelinePage(String beforeDate, int limit) {
+        return submit(() -> journalApp.getTimelinePage(beforeDate, limit));
+    }
+
+    /**
+     * Runs any journal-related blocking call on the journal executor.
+     * @param <T> result type
+     * @param task the blocking call
+     * @return future completed with the result of the call
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            // Cancelled (or otherwise completed) while queued -> skip the I/O
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
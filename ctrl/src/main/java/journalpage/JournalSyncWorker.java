@@ -0,0 +1,176 @@
+package journalpage;
+/**
+ *
+ * @author xuzhe
+ */
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import utils.EnvLoader;
+import utils.MongoDBConnection;
+
+/**
+ * Background replication between the local journal stores and the MongoDB
+ * "journals" collection.
+ *
+ * Dirty local entries are pushed in batches with one bulkWrite per batch, and
+ * remote changes newer than the store's watermark are pulled and merged. A
+ * failed cycle (e.g. no network) leaves everything dirty for the next one.
+ *
+ * The watermark is not the entries' updatedAt, which comes from the clocks
+ * of the devices that wrote them. Every write sets "syncedAt" from the
+ * server's clock instead, and pulls go by that. Writes that commit out of
+ * order are covered by pulling PULL_OVERLAP_MS before the watermark again;
+ * mergeRemote drops the versions it already has.
+ */
+public class JournalSyncWorker {
+
+    private static final int PUSH_BATCH_SIZE = 100;
+    private static final long DEFAULT_INTERVAL_SECONDS = 30;
+    private static final long PULL_OVERLAP_MS = 60_000;
+
+    /** Server time of the last write to a journal document; set with $$NOW or $currentDate. */
+    public static final String SYNCED_AT_FIELD = "syncedAt";
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread t = new Thread(runnable, "journal-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final AtomicBoolean syncQueued = new AtomicBoolean(false);
+
+    /**
+     * Starts the periodic sync (idempotent). The interval can be set with
+     * JOURNAL_SYNC_INTERVAL_SECONDS in the .env file.
+     */
+    public static void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        long interval = EnvLoader.getLong("JOURNAL_SYNC_INTERVAL_SECONDS", DEFAULT_INTERVAL_SECONDS);
+        scheduler.scheduleWithFixedDelay(JournalSyncWorker::syncAllQuietly, 0, interval, TimeUnit.SECONDS);
+
+        // Last chance to push edits made just before the app was closed
+        Runtime.getRuntime().addShutdownHook(new Thread(JournalSyncWorker::shutdown, "journal-sync-shutdown"));
+    }
+
+    /**
+     * Asks for a sync as soon as possible; repeated requests while one is
+     * queued collapse into a single cycle.
+     */
+    public static void requestSync() {
+        start();
+        if (syncQueued.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    syncQueued.set(false);
+                    syncAllQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                syncQueued.set(false); // Shutting down: the shutdown hook pushes what is left
+            }
+        }
+    }
+
+    /**
+     * Pushes and pulls one store on the calling thread.
+     * @param store the store to sync
+     * @throws RuntimeException if MongoDB cannot be reached
+     */
+    public static synchronized void syncNow(LocalJournalStore store) {
+        MongoCollection<Document> journals = MongoDBConnection.getDatabase().getCollection("journals");
+        push(store, journals);
+        pull(store, journals);
+    }
+
+    private static void syncAllQuietly() {
+        for (LocalJournalStore store : LocalJournalStore.openStores()) {
+            try {
+                syncNow(store);
+            } catch (Exception e) {
+                System.err.println("Journal sync postponed (offline?): " + e.getMessage());
+            }
+        }
+    }
+
+    private static void push(LocalJournalStore store, MongoCollection<Document> journals) {
+        List<Document> dirty = store.getDirtyEntries();
+        for (int from = 0; from < dirty.size(); from += PUSH_BATCH_SIZE) {
+            List<Document> batch = dirty.subList(from, Math.min(from + PUSH_BATCH_SIZE, dirty.size()));
+            List<WriteModel<Document>> writes = new ArrayList<>();
+            for (Document doc : batch) {
+                writes.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq("email", doc.getString("email")), Filters.eq("date", doc.getString("date"))),
+                        newerWins(doc),
+                        new UpdateOptions().upsert(true)));
+            }
+            journals.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+
+            for (Document doc : batch) {
+                store.markSynced(doc.getString("date"), LocalJournalStore.updatedAtOf(doc));
+            }
+        }
+    }
+
+    // Pipeline update: replace the remote document unless it is newer than ours
+    private static List<Bson> newerWins(Document doc) {
+        Document keepRemote = new Document("$gt", Arrays.asList(
+                new Document("$ifNull", Arrays.asList("$updatedAt", 0L)), LocalJournalStore.updatedAtOf(doc)));
+        Document ours = new Document("$mergeObjects", Arrays.asList(
+                new Document("$literal", doc), new Document(SYNCED_AT_FIELD, "$$NOW")));
+        return Arrays.asList(new Document("$replaceWith", new Document("$cond", Arrays.asList(
+                keepRemote, "$$ROOT", ours))));
+    }
+
+    private static void pull(LocalJournalStore store, MongoCollection<Document> journals) {
+        long watermark = store.getPullWatermark();
+        Bson filter = store.isHydrated()
+                ? Filters.and(Filters.eq("email", store.getEmail()),
+                        Filters.gte(SYNCED_AT_FIELD, new Date(watermark - PULL_OVERLAP_MS)))
+                : Filters.eq("email", store.getEmail()); // First pull also takes entries without syncedAt
+
+        long newWatermark = watermark;
+        for (Document remote : journals.find(filter).projection(Projections.excludeId())) {
+            store.mergeRemote(remote);
+            Object syncedAt = remote.get(SYNCED_AT_FIELD);
+            if (syncedAt instanceof Date d) {
+                newWatermark = Math.max(newWatermark, d.getTime());
+            }
+        }
+        store.setPullWatermark(newWatermark);
+    }
+
+    private static void shutdown() {
+        // Edits still waiting in the autosave queue go to the local log first
+        // (while the scheduler still takes the syncs they request)
+        JournalAutosaver.drain();
+        scheduler.shutdownNow();
+        for (LocalJournalStore store : LocalJournalStore.openStores()) {
+            if (store.getDirtyEntries().isEmpty()) {
+                continue;
+            }
+            try {
+                push(store, MongoDBConnection.getDatabase().getCollection("journals"));
+            } catch (Exception e) {
+                System.err.println("Unsynced journal entries kept locally: " + e.getMessage());
+            }
+        }
+    }
+}
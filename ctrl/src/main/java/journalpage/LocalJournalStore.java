@@ -0,0 +1,410 @@
+package journalpage;
+/**
+ *
+ * @author xuzhe
+ */
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.bson.Document;
+
+/**
+ * Per-user journal store on the local disk; the primary read/write path.
+ *
+ * Every change is appended as one JSON line to an append-only log and applied
+ * to an in-memory index sorted by date, so reads never touch the disk or the
+ * network. Three record types are written:
+ *   put  - a full entry (date, entry, weather, mood, updatedAt, synced)
+ *   ack  - the entry with that updatedAt has been pushed to MongoDB
+ *   pull - remote changes up to this server time (syncedAt) have been merged
+ * Replaying the log on open rebuilds the index. Once the log holds many more
+ * records than live entries it is compacted into a fresh file.
+ */
+public class LocalJournalStore {
+
+    private static final String STORE_DIR = "journal-store";
+    private static final int COMPACT_MIN_RECORDS = 256;
+
+    private static final Map<String, LocalJournalStore> openStores = new HashMap<>();
+
+    private final String email;
+    private final Path logPath;
+    private final NavigableMap<String, Entry> index = new TreeMap<>();
+    private FileChannel channel;
+    private Writer writer;
+    private int recordCount = 0;
+    private long pullWatermark = -1; // Server time in ms; -1 = never pulled from MongoDB
+
+    // One indexed entry; doc holds the same fields as the MongoDB document
+    private static class Entry {
+        final Document doc;
+        final long updatedAt;
+        boolean dirty;
+
+        Entry(Document doc, long updatedAt, boolean dirty) {
+            this.doc = doc;
+            this.updatedAt = updatedAt;
+            this.dirty = dirty;
+        }
+    }
+
+    /**
+     * Returns the (opened) store for a user, replaying its log on first use.
+     * @param email owner of the store
+     * @return the store
+     */
+    public static synchronized LocalJournalStore forUser(String email) {
+        String key = email.toLowerCase();
+        LocalJournalStore store = openStores.get(key);
+        if (store == null) {
+            store = new LocalJournalStore(email);
+            openStores.put(key, store);
+        }
+        return store;
+    }
+
+    /**
+     * @return every store opened so far (one per signed-in user)
+     */
+    public static synchronized List<LocalJournalStore> openStores() {
+        return new ArrayList<>(openStores.values());
+    }
+
+    private LocalJournalStore(String email) {
+        this(email, Paths.get(STORE_DIR));
+    }
+
+    /**
+     * @param email owner of the store
+     * @param dir directory holding the store's log
+     */
+    LocalJournalStore(String email, Path dir) {
+        this.email = email;
+        this.logPath = dir.resolve(fileKey(email.toLowerCase()) + ".log");
+        try {
+            Files.createDirectories(logPath.getParent());
+            replay();
+            openForAppend();
+        } catch (IOException e) {
+            // The store still works in memory; saves will go to MongoDB via sync
+            System.err.println("Local journal store unavailable: " + e.getMessage());
+        }
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * @return true once the store has merged the user's entries from MongoDB
+     * at least once, i.e. a local miss really means "no entry"
+     */
+    public synchronized boolean isHydrated() {
+        return pullWatermark >= 0;
+    }
+
+    public synchronized long getPullWatermark() {
+        return Math.max(pullWatermark, 0);
+    }
+
+    /**
+     * @param date the day to look up
+     * @return a copy of the entry document, or null if there is none
+     */
+    public synchronized Document get(LocalDate date) {
+        Entry e = index.get(date.toString());
+        return (e == null) ? null : new Document(e.doc);
+    }
+
+    /**
+     * @param beforeDate ISO date to continue after, or null to start at the newest
+     * @param limit maximum number of entries
+     * @return copies of the entries, newest first
+     */
+    public synchronized List<Document> getPage(String beforeDate, int limit) {
+        NavigableMap<String, Entry> view = (beforeDate == null)
+                ? index.descendingMap()
+                : index.headMap(beforeDate, false).descendingMap();
+        List<Document> page = new ArrayList<>();
+        for (Entry e : view.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(new Document(e.doc));
+        }
+        return page;
+    }
+
+    /**
+     * Saves an entry locally and marks it for the next push. The log line is
+     * forced to disk before returning, so the save survives a crash or being
+     * offline.
+     * @param date day of the entry
+     * @param entry journal text
+     * @param weather weather label
+     * @param mood mood category
+     */
+    public synchronized void put(LocalDate date, String entry, String weather, String mood) {
+        // Strictly increasing per store, so acks can tell edits apart
+        long updatedAt = System.currentTimeMillis();
+        Entry previous = index.get(date.toString());
+        if (previous != null && previous.updatedAt >= updatedAt) {
+            updatedAt = previous.updatedAt + 1;
+        }
+
+        Document doc = new Document("email", email)
+                .append("date", date.toString())
+                .append(journalApp.EPOCH_DAY_FIELD, date.toEpochDay())
+                .append("entry", entry)
+                .append("weather", weather)
+                .append("mood", mood)
+                .append("updatedAt", updatedAt);
+        index.put(date.toString(), new Entry(doc, updatedAt, true));
+        append(putRecord(doc, false), true);
+    }
+
+    /**
+     * @return copies of all entries not yet pushed to MongoDB
+     */
+    public synchronized List<Document> getDirtyEntries() {
+        List<Document> dirty = new ArrayList<>();
+        for (Entry e : index.values()) {
+            if (e.dirty) {
+                dirty.add(new Document(e.doc));
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Records that the version of an entry with this updatedAt is in MongoDB.
+     * A newer local edit made during the push stays dirty.
+     * @param date ISO date of the entry
+     * @param updatedAt version that was pushed
+     */
+    public synchronized void markSynced(String date, long updatedAt) {
+        Entry e = index.get(date);
+        if (e != null && e.updatedAt == updatedAt && e.dirty) {
+            e.dirty = false;
+            append(new Document("op", "ack").append("date", date).append("updatedAt", updatedAt), false);
+        }
+    }
+
+    /**
+     * Merges a document pulled from MongoDB. Local edits that have not been
+     * pushed yet win; otherwise the newer version wins.
+     * @param remote the remote document
+     */
+    public synchronized void mergeRemote(Document remote) {
+        String date = remote.getString("date");
+        if (date == null) {
+            return;
+        }
+        long remoteUpdatedAt = updatedAtOf(remote);
+        Entry local = index.get(date);
+        if (local != null && (local.dirty || local.updatedAt > remoteUpdatedAt)) {
+            return;
+        }
+        if (local != null && local.updatedAt == remoteUpdatedAt && remoteUpdatedAt != 0) {
+            return; // Same version we pushed ourselves
+        }
+
+        long epochDay;
+        try {
+            epochDay = LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            // One bad document must not fail every pull; it stays on the server as it is
+            System.err.println("Skipping remote journal entry with bad date \"" + date + "\" for " + email);
+            return;
+        }
+
+        Document doc = new Document("email", email)
+                .append("date", date)
+                .append(journalApp.EPOCH_DAY_FIELD, epochDay)
+                .append("entry", remote.getString("entry"))
+                .append("weather", remote.getString("weather"))
+                .append("mood", remote.getString("mood"))
+                .append("updatedAt", remoteUpdatedAt);
+        index.put(date, new Entry(doc, remoteUpdatedAt, false));
+        append(putRecord(doc, true), false);
+    }
+
+    /**
+     * Records that all remote changes up to the watermark are merged.
+     * @param watermark highest remote syncedAt seen, in ms
+     */
+    public synchronized void setPullWatermark(long watermark) {
+        pullWatermark = Math.max(watermark, Math.max(pullWatermark, 0));
+        append(pullRecord(), false);
+        if (recordCount > COMPACT_MIN_RECORDS && recordCount > 2 * (index.size() + 1)) {
+            compact();
+        }
+    }
+
+    // --- LOG HANDLING ---
+    private void replay() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(logPath);
+        int goodEnd = 0; // Just past the last record that could be read
+        int start = 0;
+        while (start < bytes.length) {
+            int newline = start;
+            while (newline < bytes.length && bytes[newline] != '\n') {
+                newline++;
+            }
+            int end = Math.min(newline + 1, bytes.length);
+            String line = new String(bytes, start, newline - start, StandardCharsets.UTF_8);
+            if (line.isBlank()) {
+                goodEnd = end;
+            } else {
+                try {
+                    apply(Document.parse(line));
+                    recordCount++;
+                    goodEnd = end;
+                } catch (Exception e) {
+                    System.err.println("Skipping corrupt journal log record in " + logPath);
+                }
+            }
+            start = end;
+        }
+
+        // A torn last line from a crash mid-write: cut it off, or the next append would land on the same line
+        if (goodEnd < bytes.length) {
+            try (FileChannel log = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+                log.truncate(goodEnd);
+                log.force(false);
+            }
+        }
+    }
+
+    private void apply(Document record) {
+        switch (record.getString("op")) {
+            case "put" -> {
+                Document doc = (Document) record.get("doc");
+                index.put(doc.getString("date"),
+                        new Entry(doc, updatedAtOf(doc), !record.getBoolean("synced", false)));
+            }
+            case "ack" -> {
+                Entry e = index.get(record.getString("date"));
+                if (e != null && e.updatedAt == updatedAtOf(record)) {
+                    e.dirty = false;
+                }
+            }
+            case "pull" -> {
+                // Older logs kept an updatedAt watermark under "watermark"; ignoring it means one full pull
+                Object syncedAt = record.get("syncedAt");
+                if (syncedAt instanceof Number n) {
+                    pullWatermark = n.longValue();
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void append(Document record, boolean force) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(record.toJson());
+            writer.write('\n');
+            writer.flush();
+            if (force) {
+                channel.force(false);
+            }
+            recordCount++;
+        } catch (IOException e) {
+            System.err.println("Failed to write journal log: " + e.getMessage());
+        }
+    }
+
+    // Rewrites the log with one put per live entry plus the watermark
+    private void compact() {
+        Path tmp = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try {
+            List<String> lines = new ArrayList<>();
+            for (Entry e : index.values()) {
+                lines.add(putRecord(e.doc, !e.dirty).toJson());
+            }
+            lines.add(pullRecord().toJson());
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+
+            writer.close();
+            Files.move(tmp, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recordCount = lines.size();
+            openForAppend();
+        } catch (IOException e) {
+            System.err.println("Journal log compaction failed: " + e.getMessage());
+            try {
+                openForAppend();
+            } catch (IOException ignored) {
+                writer = null;
+            }
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        // Last record complete but its newline lost: end the line before appending to it
+        boolean sealTail = false;
+        if (Files.exists(logPath)) {
+            try (FileChannel in = FileChannel.open(logPath, StandardOpenOption.READ)) {
+                long size = in.size();
+                ByteBuffer last = ByteBuffer.allocate(1);
+                sealTail = size > 0 && in.read(last, size - 1) == 1 && last.get(0) != '\n';
+            }
+        }
+
+        channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        if (sealTail) {
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    private static Document putRecord(Document doc, boolean synced) {
+        return new Document("op", "put").append("synced", synced).append("doc", doc);
+    }
+
+    private Document pullRecord() {
+        return new Document("op", "pull").append("syncedAt", pullWatermark);
+    }
+
+    static long updatedAtOf(Document doc) {
+        Object value = doc.get("updatedAt");
+        return (value instanceof Number n) ? n.longValue() : 0L;
+    }
+
+    // Stable, filesystem-safe file name for an email address
+    private static String fileKey(String email) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(email.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return email.replaceAll("[^A-Za-z0-9._-]", "_");
+        }
+    }
+}
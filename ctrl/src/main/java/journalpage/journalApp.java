@@ -7,9 +7,13 @@ import java.util.*;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import com.mongodb.client.MongoCollection;
-import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import registration.UserSession;
+import utils.Metrics;
 import utils.MongoDBConnection;
 
 public class journalApp {
@@ -17,11 +21,23 @@ public class journalApp {
     public static final Scanner scanner = new Scanner(System.in);
     public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    // Typed copy of "date" (days since 1970-01-01) used for range queries
+    public static final String EPOCH_DAY_FIELD = "epochDay";
+
+    // Characters shown in a timeline preview before the "..."
+    public static final int PREVIEW_LENGTH = 30;
+
+    // Latency of the journal operations the screens wait on (see utils.Metrics)
+    private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("journal.load");
+    private static final Metrics.Histogram SAVE_TIME = Metrics.histogram("journal.save");
+    private static final Metrics.Histogram TIMELINE_TIME = Metrics.histogram("journal.timelinePage");
+    private static final Metrics.Counter MONGO_READS = Metrics.counter("journal.mongoReads");
+
     private static MongoCollection<Document> getJournalCollection() {
         return MongoDBConnection.getDatabase().getCollection("journals");
     }
 
-    private static String getCurrentUserEmail() {
+    static String getCurrentUserEmail() {
         if (UserSession.getInstance().getCurrentUser() != null) {
             return UserSession.getInstance().getCurrentUser().getEmail();
         }
@@ -36,31 +52,85 @@ public class journalApp {
      * @return Journal Collection of the first query
      */
     public static Document getJournalDocument(LocalDate date) {
-        String email = getCurrentUserEmail();
-        String dateStr = date.toString();
-        Document query = new Document("email", email).append("date", dateStr);
-        return getJournalCollection().find(query).first();
+        return getJournalDocument(getCurrentUserEmail(), date);
+    }
+
+    /**
+     * Same as {@link #getJournalDocument(LocalDate)} for a given user.
+     * @param email owner of the entry
+     * @param date day of the entry
+     * @return the entry document, or null
+     */
+    static Document getJournalDocument(String email, LocalDate date) {
+        long start = System.nanoTime();
+        try {
+            LocalJournalStore store = getLocalStore(email);
+            if (store.isHydrated()) {
+                return store.get(date); // Served from memory, no network
+            }
+
+            // First run on this machine: read through to MongoDB until the first pull lands
+            String dateStr = date.toString();
+            Document query = new Document("email", email).append("date", dateStr);
+            Document local = store.get(date);
+            if (local != null) {
+                return local;
+            }
+            MONGO_READS.increment();
+            return getJournalCollection().find(query).first();
+        } finally {
+            LOAD_TIME.recordSince(start);
+        }
+    }
+
+    /**
+     * The local store of the signed-in user; starts background sync on first use.
+     * @return the store that serves reads and takes writes
+     */
+    public static LocalJournalStore getLocalStore() {
+        return getLocalStore(getCurrentUserEmail());
+    }
+
+    private static LocalJournalStore getLocalStore(String email) {
+        LocalJournalStore store = LocalJournalStore.forUser(email);
+        JournalSyncWorker.start();
+        return store;
     }
 
     // --------------------------------
     // --- EXISTING CLI METHODS ------
     public static void saveJournal(LocalDate date, String entry, String weather, String mood) {
-        String email = getCurrentUserEmail();
-        String dateStr = date.toString();
-
-        Document filter = new Document("email", email).append("date", dateStr);
+        saveJournal(getCurrentUserEmail(), date, entry, weather, mood);
+    }
 
-        Document doc = new Document("email", email)
-                .append("date", dateStr)
-                .append("entry", entry)
-                .append("weather", weather)
-                .append("mood", mood);
+    static void saveJournal(String email, LocalDate date, String entry, String weather, String mood) {
+        // Written to the local log first; the sync worker pushes it to MongoDB
+        long start = System.nanoTime();
+        getLocalStore(email).put(date, entry, weather, mood);
+        JournalSyncWorker.requestSync();
+        SAVE_TIME.recordSince(start);
+    }
 
-        getJournalCollection().replaceOne(
-                filter,
-                doc,
-                new ReplaceOptions().upsert(true)
-        );
+    /**
+     * Filter for one user's entries between two dates (both inclusive).
+     * Migrated documents are matched on the indexed epochDay field; documents
+     * written before the migration still match on their ISO date string.
+     * @param email the owner of the entries
+     * @param from first day of the range
+     * @param to last day of the range
+     * @return the query filter
+     */
+    public static Bson dateRangeFilter(String email, LocalDate from, LocalDate to) {
+        return Filters.and(
+                Filters.eq("email", email),
+                Filters.or(
+                        Filters.and(
+                                Filters.gte(EPOCH_DAY_FIELD, from.toEpochDay()),
+                                Filters.lte(EPOCH_DAY_FIELD, to.toEpochDay())),
+                        Filters.and(
+                                Filters.eq(EPOCH_DAY_FIELD, null),
+                                Filters.gte("date", from.toString()),
+                                Filters.lte("date", to.toString()))));
     }
 
     public static String readJournal(LocalDate date) {
@@ -83,6 +153,10 @@ public class journalApp {
 
     // Fetch all journal entries for the timeline
     public static List<Document> getAllUserJournals() {
+        LocalJournalStore store = getLocalStore();
+        if (store.isHydrated()) {
+            return store.getPage(null, Integer.MAX_VALUE);
+        }
         String email = getCurrentUserEmail();
         // Find all documents for this user, Sorted by Date (Descending / Newest First)
         return getJournalCollection()
@@ -90,4 +164,72 @@ public class journalApp {
                 .sort(new Document("date", -1))
                 .into(new ArrayList<>());
     }
+
+    /**
+     * Fetches one page of the timeline, newest first. Only the date and a
+     * preview cut on the server are returned, so full entry bodies never
+     * leave MongoDB. Paging is keyset based: pass the date of the last row
+     * of the previous page to continue after it.
+     * @param beforeDate ISO date to continue after, or null for the first page
+     * @param limit maximum number of rows in the page
+     * @return documents with "date" and "preview" fields
+     */
+    public static List<Document> getTimelinePage(String beforeDate, int limit) {
+        long start = System.nanoTime();
+        try {
+            return fetchTimelinePage(beforeDate, limit);
+        } finally {
+            TIMELINE_TIME.recordSince(start);
+        }
+    }
+
+    private static List<Document> fetchTimelinePage(String beforeDate, int limit) {
+        LocalJournalStore store = getLocalStore();
+        if (store.isHydrated()) {
+            List<Document> page = new ArrayList<>();
+            for (Document doc : store.getPage(beforeDate, limit)) {
+                page.add(new Document("date", doc.getString("date")).append("preview", makePreview(doc.getString("entry"))));
+            }
+            return page;
+        }
+
+        String email = getCurrentUserEmail();
+        MONGO_READS.increment();
+
+        Bson filter = (beforeDate == null)
+                ? Filters.eq("email", email)
+                : Filters.and(Filters.eq("email", email), Filters.lt("date", beforeDate));
+
+        // preview = trimmed entry, cut to PREVIEW_LENGTH code points plus "..."
+        Document trimmed = new Document("$trim", new Document("input",
+                new Document("$ifNull", Arrays.asList("$entry", ""))));
+        Document preview = new Document("$let", new Document("vars", new Document("t", trimmed))
+                .append("in", new Document("$cond", Arrays.asList(
+                        new Document("$gt", Arrays.asList(new Document("$strLenCP", "$$t"), PREVIEW_LENGTH)),
+                        new Document("$concat", Arrays.asList(
+                                new Document("$substrCP", Arrays.asList("$$t", 0, PREVIEW_LENGTH)), "...")),
+                        "$$t"))));
+
+        List<Document> page = getJournalCollection().aggregate(Arrays.asList(
+                Aggregates.match(filter),
+                Aggregates.sort(Sorts.descending("date")),
+                Aggregates.limit(limit),
+                Aggregates.project(new Document("_id", 0).append("date", 1).append("preview", preview))
+        )).into(new ArrayList<>());
+
+        // Newlines would break the single-line sidebar cell
+        for (Document doc : page) {
+            doc.put("preview", doc.getString("preview").replace("\r", "").replace("\n", " "));
+        }
+        return page;
+    }
+
+    // Same preview as the server-side projection in getTimelinePage
+    private static String makePreview(String entry) {
+        String preview = (entry == null) ? "" : entry.trim();
+        if (preview.codePointCount(0, preview.length()) > PREVIEW_LENGTH) {
+            preview = preview.substring(0, preview.offsetByCodePoints(0, PREVIEW_LENGTH)) + "...";
+        }
+        return preview.replace("\r", "").replace("\n", " ");
+    }
 }
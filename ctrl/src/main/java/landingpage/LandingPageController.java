@@ -7,28 +7,31 @@ package landingpage;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextInputDialog;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.util.Duration;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
+import registration.User;
+import registration.UserLocations;
 import registration.UserSession;
 import utils.GlobalVideoManager; // Import shared manager
+import utils.SceneNavigator;
+import utils.ScreenLifecycle;
+import utils.TaskScheduler;
 import utils.WeatherBackgroundManager;
+import utils.WeatherService;
 import welcome.welcome;
 
-public class LandingPageController {
+public class LandingPageController implements ScreenLifecycle {
 
     @FXML private StackPane rootPane;
     
@@ -39,27 +42,23 @@ public class LandingPageController {
     @FXML private Label greetingLabel;       // Displays the GREETING ("Good Morning,")
     @FXML private Label dateTimeLabel;
     @FXML private Label instructionLabel; 
+    @FXML private Button locationButton;    // Shows the weather location, click to change it
 
     private String currentUserName = "User";
+    private Timeline clock;
+    private final TaskScheduler.Scope tasks = TaskScheduler.scope("landing");
+    // Not cancelled by onHide(): a location change is saved even if the user moves on right away
+    private final TaskScheduler.Scope settings = TaskScheduler.scope("landing-settings");
 
     @FXML
     public void initialize() {
         startDynamicClock();
 
-        // 1. Setup ESC key handler
-        Platform.runLater(() -> {
-            Stage stage = (Stage) rootPane.getScene().getWindow();
-            if (stage != null) {
-                setupEscapeKeyHandler(stage);
-                rootPane.requestFocus();
-            }
-        });
-
         if (instructionLabel != null) {
             instructionLabel.setText("Press ENTER to Start  •  Press ESC to Exit");
         }
 
-        // 2. Setup Enter/Esc Keys
+        // 1. Setup Enter/Esc Keys
         rootPane.setOnKeyPressed((var event) -> {
             switch (event.getCode()) {
                 case ENTER -> handleNewEntry();
@@ -69,39 +68,55 @@ public class LandingPageController {
                 }
             }
         });
+    }
+
+    // Runs on every visit, since the screen is cached by SceneNavigator
+    @Override
+    public void onShow() {
+        clock.play();
+
+        // 1. Greet whoever is signed in now
+        if (UserSession.getInstance().getCurrentUser() != null) {
+            setUserName(UserSession.getInstance().getCurrentUser().getDisplayName());
+        } else {
+            updateGreeting();
+        }
+
+        // 2. Setup ESC key handler (the Scene is shared by all screens)
+        Stage stage = (Stage) rootPane.getScene().getWindow();
+        if (stage != null) {
+            setupEscapeKeyHandler(stage);
+            rootPane.requestFocus();
+        }
 
         // 3. Load Weather Video (The Lag Fix)
-        new Thread(() -> {
-            LocalDate today = LocalDate.now();
-            String weather = WeatherBackgroundManager.getWeatherForDate(today);
-            String videoFile = WeatherBackgroundManager.getVideoFileForWeather(weather);
+        attachVideoToBackground();
+        updateLocationButton();
+        refreshWeatherVideo();
+    }
 
-            Platform.runLater(() -> {
+    private void refreshWeatherVideo() {
+        tasks.io("weather", () -> WeatherBackgroundManager.getWeatherForDate(LocalDate.now()),
                 // Initialize/Update the shared video manager
-                GlobalVideoManager.updateWeatherVideo(videoFile);
-                
-                // Attach the shared view to THIS screen
-                attachVideoToBackground();
-            });
-        }).start();
+                weather -> GlobalVideoManager.updateWeatherVideo(WeatherBackgroundManager.getVideoFileForWeather(weather)),
+                null);
     }
 
-    private void attachVideoToBackground() {
-        var sharedView = GlobalVideoManager.getSharedMediaView();
+    private void updateLocationButton() {
+        if (locationButton != null) {
+            locationButton.setText("Location: " + WeatherService.getCurrentLocation());
+        }
+    }
 
-        if (sharedView != null && videoContainer != null) {
-            // Clear old children, add shared video
-            videoContainer.getChildren().clear();
-            videoContainer.getChildren().add(sharedView);
+    @Override
+    public void onHide() {
+        clock.pause();
+        tasks.cancelAll();
+    }
 
-            // Bind Size (Responsive Background)
-            sharedView.fitWidthProperty().bind(rootPane.widthProperty());
-            sharedView.fitHeightProperty().bind(rootPane.heightProperty());
-            sharedView.setPreserveRatio(false);
-            
-            // Send to back so it sits behind the UI
-            sharedView.toBack();
-        }
+    private void attachVideoToBackground() {
+        // Move the shared (crossfading) video layer behind this screen
+        GlobalVideoManager.attachTo(videoContainer, rootPane);
     }
 
     public void setUserName(String name) {
@@ -139,61 +154,62 @@ public class LandingPageController {
     private void startDynamicClock() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEEE, MMMM dd  |  h:mm a");
 
-        Timeline clock = new Timeline(new KeyFrame(Duration.seconds(1), event -> {
+        clock = new Timeline(new KeyFrame(Duration.seconds(1), event -> {
             LocalDateTime now = LocalDateTime.now(ZoneId.of("GMT+8"));
             if (dateTimeLabel != null) {
                 dateTimeLabel.setText(now.format(formatter).toUpperCase());
             }
         }));
-        clock.setCycleCount(Timeline.INDEFINITE);
-        clock.play();
+        clock.setCycleCount(Timeline.INDEFINITE); // Played in onShow()
     }
 
     @FXML
     protected void handleNewEntry() {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/journalpage/JournalEditor.fxml"));
-            Parent root = loader.load();
-
-            Stage stage = (Stage) rootPane.getScene().getWindow();
-            Scene newScene = new Scene(root);
-            stage.setScene(newScene);
-
-            stage.setFullScreenExitHint("");
-            stage.setFullScreen(true);
-
-        } catch (IOException e) {
-        }
+        SceneNavigator.show(SceneNavigator.Screen.EDITOR);
     }
 
     @FXML
     protected void handleViewSummary() {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/summary/Summary.fxml"));
-            Parent root = loader.load();
-
-            Stage stage = (Stage) rootPane.getScene().getWindow();
-            Scene newScene = new Scene(root);
-            stage.setScene(newScene);
+        SceneNavigator.show(SceneNavigator.Screen.SUMMARY);
+    }
 
-            stage.setFullScreenExitHint("");
-            stage.setFullScreen(true);
+    @FXML
+    private void handleChangeLocation(ActionEvent event) {
+        User user = UserSession.getInstance().getCurrentUser();
+        if (user == null) {
+            return;
+        }
 
-        } catch (IOException e) {
+        // 1. Ask for a forecast location, e.g. "Johor Bahru"
+        TextInputDialog dialog = new TextInputDialog(WeatherService.getCurrentLocation());
+        dialog.setTitle("Weather Location");
+        dialog.setHeaderText("Which town's forecast should set the background?");
+        dialog.setContentText("Location:");
+        dialog.initOwner(rootPane.getScene().getWindow());
+        String location = dialog.showAndWait().map(String::trim).orElse("");
+        rootPane.requestFocus();
+        if (location.isEmpty() || location.equals(WeatherService.getCurrentLocation())) {
+            return;
         }
+
+        // 2. Save it (a file write), then switch the video to the new location's weather
+        locationButton.setText("Location: " + location);
+        settings.io("location", () -> {
+            UserLocations.setLocation(user.getEmail(), location);
+            return location;
+        }, saved -> {
+            updateLocationButton();
+            refreshWeatherVideo();
+        }, error -> {
+            System.err.println("Could not save location: " + error.getMessage());
+            updateLocationButton();
+        });
     }
 
     @FXML
     private void handleLogout(ActionEvent event) {
         UserSession.getInstance().logout();
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/registration/Login.fxml"));
-            Parent root = loader.load();
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setFullScreenExitHint("");
-            stage.setFullScreen(true);
-        } catch (IOException e) {
-        }
+        SceneNavigator.show(SceneNavigator.Screen.LOGIN);
+        SceneNavigator.clearUserScreens(); // The next user gets fresh screens
     }
-}
\ No newline at end of file
+}
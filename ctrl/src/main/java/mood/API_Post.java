@@ -3,14 +3,19 @@ package mood;
  *
  * @author zayn
  */
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import utils.HttpService;
+import utils.Metrics;
 
 public class API_Post {
 
+    // Model inference can be slow on a cold start
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Metrics.Histogram LATENCY = Metrics.histogram("http.mood");
+    private static final Metrics.Counter ERRORS = Metrics.counter("http.mood.errors");
+
     /**
      * Sends a POST request with JSON body and Bearer token authentication.
      *
@@ -21,39 +26,32 @@ public class API_Post {
      * @throws Exception if the request fails
      */
     public String post(String apiURL, String bearerToken, String jsonBody) throws Exception {
-        URL url = new URL(apiURL);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-        // Set HTTP method and headers
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Accept", "application/json");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setRequestProperty("Authorization", "Bearer " + bearerToken);
-
-        // Enable sending body
-        conn.setDoOutput(true);
-
-        // Write request body
-        try (OutputStream os = conn.getOutputStream()) {
-            byte[] input = jsonBody.getBytes("utf-8");
-            os.write(input, 0, input.length);
-        }
-
-        // Check for success
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200 && responseCode != 201) {
-            throw new RuntimeException("POST failed. HTTP error code: " + responseCode);
-        }
-
-        // Read response
-        BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), "utf-8"));
-        StringBuilder sb = new StringBuilder();
-        String responseLine;
-        while ((responseLine = br.readLine()) != null) {
-            sb.append(responseLine.trim());
+        long start = System.nanoTime();
+        try {
+            return HttpService.post(apiURL, bearerToken, jsonBody, TIMEOUT);
+        } catch (Exception e) {
+            ERRORS.increment();
+            throw e;
+        } finally {
+            LATENCY.recordSince(start);
         }
+    }
 
-            conn.disconnect();
-            return sb.toString();
-        }
-    }
\ No newline at end of file
+    /**
+     * Sends the POST request without blocking the caller.
+     *
+     * @param apiURL      the URL to send the POST request to
+     * @param bearerToken the bearer token for Authorization header
+     * @param jsonBody    the JSON payload as a string
+     * @return future completed with the response body
+     */
+    public CompletableFuture<String> postAsync(String apiURL, String bearerToken, String jsonBody) {
+        long start = System.nanoTime();
+        return HttpService.postAsync(apiURL, bearerToken, jsonBody, TIMEOUT).whenComplete((body, error) -> {
+            LATENCY.recordSince(start);
+            if (error != null) {
+                ERRORS.increment();
+            }
+        });
+    }
+}
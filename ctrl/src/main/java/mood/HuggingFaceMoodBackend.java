@@ -0,0 +1,98 @@
+package mood;
+/**
+ *
+ * @author zayn
+ */
+import utils.EnvLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Remote backend: DistilBERT (SST-2) on the Hugging Face inference API.
+ */
+public class HuggingFaceMoodBackend implements MoodBackend {
+
+    private static final String API_URL = "https://router.huggingface.co/hf-inference/models/distilbert/distilbert-base-uncased-finetuned-sst-2-english";
+
+    @Override
+    public String name() {
+        return "remote";
+    }
+
+    /**
+     * @return true if a BEARER_TOKEN is configured
+     */
+    public static boolean isConfigured() {
+        String token = EnvLoader.loadEnv().get("BEARER_TOKEN");
+        return token != null && !token.isEmpty();
+    }
+
+    @Override
+    public String analyze(String text) {
+        return analyzeBatch(List.of(text)).get(0);
+    }
+
+    // One HTTP request for the whole list; every text gets the same error if it fails
+    @Override
+    public List<String> analyzeBatch(List<String> journalTexts) {
+        API_Post api = new API_Post();
+        List<String> results = new ArrayList<>();
+
+        try {
+            // Load API token from .env (auto-finds the file)
+            Map<String, String> env = EnvLoader.loadEnv();
+            String bearerToken = env.get("BEARER_TOKEN");
+            if (bearerToken == null || bearerToken.isEmpty()) {
+                throw new IllegalStateException("BEARER_TOKEN is not set in the environment.");
+            }
+
+            // The endpoint takes a string or an array of strings as "inputs"
+            JSONObject body = new JSONObject();
+            if (journalTexts.size() == 1) {
+                body.put("inputs", journalTexts.get(0));
+            } else {
+                body.put("inputs", new JSONArray(journalTexts));
+            }
+
+            // Call API
+            String response = api.post(API_URL, bearerToken, body.toString());
+
+            // Parse the returned JSON: one array of label scores per input
+            JSONArray outerArray = new JSONArray(response);
+            for (int i = 0; i < journalTexts.size(); i++) {
+                results.add(formatTopLabel(outerArray.getJSONArray(i)));
+            }
+            return results;
+
+        } catch (Exception e) {
+            // shows full details in console/log
+            results.clear();
+            for (int i = 0; i < journalTexts.size(); i++) {
+                results.add("Error: " + e.getMessage());
+            }
+            return results;
+        }
+    }
+
+    private static String formatTopLabel(JSONArray labels) {
+        // Pick the highest likelihood instead of trusting the response order
+        JSONObject topResult = labels.getJSONObject(0);
+        for (int i = 1; i < labels.length(); i++) {
+            if (labels.getJSONObject(i).getDouble("score") > topResult.getDouble("score")) {
+                topResult = labels.getJSONObject(i);
+            }
+        }
+
+        String moodLabel = topResult.getString("label");
+        double moodScore = topResult.getDouble("score");
+
+        // Optional: simplify label (capitalize only first letter)
+        moodLabel = moodLabel.substring(0, 1).toUpperCase() + moodLabel.substring(1).toLowerCase();
+
+        // Return only mood (and optionally confidence)
+        return moodLabel + " (" + String.format("%.0f%%", moodScore * 100) + ")";
+    }
+}
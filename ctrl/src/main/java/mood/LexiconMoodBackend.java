@@ -0,0 +1,303 @@
+package mood;
+/**
+ *
+ * @author zayn
+ */
+
+/**
+ * Local backend: a lexicon and rule based sentiment scorer in plain Java.
+ *
+ * Words are looked up by their 64-bit FNV-1a hash in an open-addressing
+ * table of primitive arrays that is built once when the class loads, so
+ * scoring an entry allocates almost nothing and takes microseconds. Rules:
+ *   - negators ("not", "never", "didn't") flip and damp the next few words
+ *   - intensifiers ("very") and dampeners ("slightly") scale the next word
+ *   - "but"/"however" weaken what came before and strengthen what follows
+ *   - ALL CAPS words and exclamation marks add emphasis
+ * The sentence scores are summed and squashed into [-1, 1], then reported in
+ * the same "Label (NN%)" format as the remote model.
+ */
+public class LexiconMoodBackend implements MoodBackend {
+
+    private static final byte SENTIMENT = 0;
+    private static final byte NEGATOR = 1;
+    private static final byte SCALER = 2;
+    private static final byte CONTRAST = 3;
+
+    private static final int MAX_TOKEN = 32;
+    private static final int NEGATION_SCOPE = 3;       // words after a negator it still applies to
+    private static final float NEGATION_FACTOR = -0.74f;
+    private static final float CAPS_EMPHASIS = 0.733f;
+    private static final float EXCLAMATION_EMPHASIS = 0.292f;
+    private static final float NORMALIZATION_ALPHA = 15f;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // word:valence on a -4..+4 scale
+    private static final String POSITIVE_WORDS =
+            "good:1.9 great:3.1 happy:2.7 happiness:2.6 glad:2.0 joy:2.8 joyful:2.9 love:3.2 loved:2.9 "
+            + "lovely:2.8 liked:1.8 excited:2.2 exciting:2.2 amazing:2.8 awesome:3.1 wonderful:2.7 "
+            + "fantastic:2.6 excellent:2.7 fun:2.3 enjoy:2.2 enjoyed:2.3 enjoyable:1.9 nice:1.8 beautiful:2.9 "
+            + "calm:1.3 relaxed:2.2 relaxing:2.1 peaceful:2.2 grateful:2.0 thankful:2.0 thanks:1.9 proud:2.1 "
+            + "hope:1.9 hopeful:2.3 confident:2.2 productive:1.6 success:2.7 successful:2.8 win:2.8 won:2.7 "
+            + "best:3.2 better:1.9 laugh:2.6 laughed:2.4 smile:1.5 smiled:2.0 cheerful:2.5 delighted:2.7 "
+            + "pleased:1.9 satisfied:1.8 fine:0.8 okay:0.9 ok:0.9 comfortable:1.5 safe:1.9 kind:2.4 "
+            + "friendly:2.2 celebrate:2.7 blessed:2.9 energetic:1.9 motivated:1.8 inspired:2.2 "
+            + "accomplished:1.9 achievement:2.2 perfect:2.7 brilliant:2.8 cool:1.3 favorite:2.0 favourite:2.0 "
+            + "positive:2.6 glorious:3.0 refreshed:1.9 rested:1.6 improved:1.8 progress:1.7 easy:1.9 "
+            + "sunny:1.5 delicious:2.7 together:0.8 helped:1.7 helpful:1.8 free:1.6 wow:2.8";
+
+    private static final String NEGATIVE_WORDS =
+            "bad:-2.5 sad:-2.1 sadness:-1.9 unhappy:-1.8 angry:-2.3 anger:-2.7 mad:-2.2 upset:-1.6 "
+            + "terrible:-2.5 awful:-2.0 horrible:-2.5 hate:-2.7 hated:-3.2 worst:-3.1 worse:-2.1 tired:-1.9 "
+            + "exhausted:-1.5 stressed:-1.4 stress:-1.8 stressful:-2.3 anxious:-1.0 anxiety:-0.7 worried:-1.2 "
+            + "worry:-1.9 fear:-2.2 afraid:-2.0 scared:-1.9 lonely:-1.5 alone:-1.0 depressed:-2.3 "
+            + "depressing:-1.6 cry:-2.1 cried:-1.6 crying:-2.1 hurt:-2.4 pain:-2.3 painful:-2.4 sick:-2.3 "
+            + "ill:-1.8 boring:-1.3 bored:-1.1 annoyed:-1.6 annoying:-1.8 frustrated:-2.4 frustrating:-1.9 "
+            + "disappointed:-1.9 disappointing:-2.2 fail:-2.5 failed:-2.3 failure:-2.4 lost:-1.3 lose:-1.7 "
+            + "problem:-1.7 difficult:-1.5 miserable:-2.3 broken:-1.8 guilty:-1.8 regret:-1.8 ugly:-2.3 "
+            + "nervous:-1.1 overwhelmed:-1.9 hopeless:-2.0 useless:-1.8 wrong:-2.1 negative:-2.7 sucks:-1.5 "
+            + "sucked:-2.0 argument:-1.5 fight:-1.9 fought:-1.3 mess:-1.5 disaster:-3.1 struggle:-1.3 "
+            + "struggled:-1.4 struggling:-1.5 sorry:-0.3 hard:-0.4 rude:-2.0 unfair:-2.1 ruined:-2.4 "
+            + "gloomy:-1.9 awkward:-1.0 headache:-1.8 crap:-1.6 sigh:-0.8";
+
+    // word:factor applied to the next sentiment word
+    private static final String SCALERS =
+            "very:1.5 really:1.5 so:1.4 extremely:1.6 incredibly:1.6 totally:1.5 absolutely:1.6 super:1.5 "
+            + "truly:1.4 completely:1.5 deeply:1.5 especially:1.4 highly:1.4 too:1.3 quite:1.2 "
+            + "slightly:0.5 somewhat:0.6 kinda:0.6 barely:0.5 marginally:0.5 partly:0.6 little:0.7";
+
+    // Stored without apostrophes: "didn't" and "didnt" hash the same
+    private static final String NEGATORS =
+            "not no never none nobody nothing neither nor nowhere without cannot dont doesnt didnt isnt "
+            + "arent wasnt werent cant couldnt wont wouldnt shouldnt havent hasnt hadnt aint mustnt neednt";
+
+    private static final String CONTRASTS = "but however";
+
+    // --- PRECOMPILED LOOKUP TABLE ---
+    private static final long[] keys;
+    private static final float[] values;
+    private static final byte[] kinds;
+    private static final int mask;
+
+    static {
+        int size = 1024; // power of two, well above twice the word count
+        keys = new long[size];
+        values = new float[size];
+        kinds = new byte[size];
+        mask = size - 1;
+
+        addWeighted(POSITIVE_WORDS, SENTIMENT);
+        addWeighted(NEGATIVE_WORDS, SENTIMENT);
+        addWeighted(SCALERS, SCALER);
+        for (String word : NEGATORS.split(" ")) {
+            insert(word, NEGATOR, 0f);
+        }
+        for (String word : CONTRASTS.split(" ")) {
+            insert(word, CONTRAST, 0f);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public String analyze(String text) {
+        double compound = score(text);
+        String label = (compound >= 0) ? "Positive" : "Negative";
+        return label + " (" + String.format("%.0f%%", (0.5 + 0.5 * Math.abs(compound)) * 100) + ")";
+    }
+
+    /**
+     * @param text journal text
+     * @return sentiment in [-1, 1]; 0 when no lexicon word is found
+     */
+    public static double score(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        Scan s = new Scan(hasLowerCase(text));
+        int n = text.length();
+
+        for (int i = 0; i <= n; i++) {
+            char c = (i < n) ? text.charAt(i) : ' ';
+
+            if (Character.isLetter(c)) {
+                char lc = Character.toLowerCase(c);
+                if (s.len < MAX_TOKEN) {
+                    s.buf[s.len] = lc;
+                    s.hash = (s.hash ^ lc) * FNV_PRIME;
+                    s.len++;
+                    s.prefix[s.len] = s.hash;
+                } else {
+                    s.tooLong = true; // Not a dictionary word (URL, gibberish...)
+                }
+                s.upper &= Character.isUpperCase(c);
+                continue;
+            }
+            if (c == '\'' || c == '’') {
+                continue; // don't -> dont
+            }
+
+            if (s.len > 0) {
+                s.token();
+            }
+            if (c == '!') {
+                s.exclamations++;
+            } else if (c == '.' || c == '?' || c == ';' || c == '\n') {
+                s.endSentence();
+            }
+        }
+        s.endSentence();
+
+        double total = s.total;
+        return total / Math.sqrt(total * total + NORMALIZATION_ALPHA);
+    }
+
+    // Mutable state of one scoring pass
+    private static final class Scan {
+        final char[] buf = new char[MAX_TOKEN];
+        final long[] prefix = new long[MAX_TOKEN + 1]; // hash of the first k chars
+        final boolean textHasLower;
+        long hash = FNV_OFFSET;
+        int len = 0;
+        boolean upper = true;
+        boolean tooLong = false;
+
+        int sinceNegation = Integer.MAX_VALUE / 2;
+        int sinceScaler = Integer.MAX_VALUE / 2;
+        float scale = 1f;
+        float contrast = 1f;
+        int exclamations = 0;
+        float sentence = 0f;
+        float total = 0f;
+
+        Scan(boolean textHasLower) {
+            this.textHasLower = textHasLower;
+            prefix[0] = FNV_OFFSET;
+        }
+
+        void token() {
+            sinceNegation++;
+            sinceScaler++;
+            int slot = tooLong ? -1 : lookupWithSuffixes(this);
+            boolean shouting = upper && textHasLower && len > 1;
+            len = 0;
+            hash = FNV_OFFSET;
+            upper = true;
+            tooLong = false;
+            if (slot < 0) {
+                return;
+            }
+
+            switch (kinds[slot]) {
+                case NEGATOR -> sinceNegation = 0;
+                case SCALER -> {
+                    scale = values[slot];
+                    sinceScaler = 0;
+                }
+                case CONTRAST -> {
+                    sentence *= 0.5f;
+                    contrast = 1.5f;
+                }
+                default -> {
+                    float v = values[slot];
+                    if (sinceScaler <= 1) {
+                        v *= scale;
+                    }
+                    if (shouting) {
+                        v += Math.signum(v) * CAPS_EMPHASIS;
+                    }
+                    if (sinceNegation <= NEGATION_SCOPE) {
+                        v *= NEGATION_FACTOR;
+                    }
+                    sentence += v * contrast;
+                }
+            }
+        }
+
+        void endSentence() {
+            if (sentence != 0) {
+                sentence += Math.signum(sentence) * EXCLAMATION_EMPHASIS * Math.min(exclamations, 4);
+            }
+            total += sentence;
+            sentence = 0f;
+            exclamations = 0;
+            contrast = 1f;
+            sinceNegation = Integer.MAX_VALUE / 2;
+            sinceScaler = Integer.MAX_VALUE / 2;
+        }
+    }
+
+    // Exact word first, then light stemming (-s, -ed, -d, -ing, -ly) using the prefix hashes
+    private static int lookupWithSuffixes(Scan s) {
+        int len = s.len;
+        int slot = find(s.prefix[len]);
+        if (slot >= 0 || len <= 3) {
+            return slot;
+        }
+        char[] b = s.buf;
+        if (b[len - 1] == 's') {
+            slot = find(s.prefix[len - 1]);
+        } else if (b[len - 1] == 'd' && b[len - 2] == 'e') {
+            slot = find(s.prefix[len - 2]);
+            if (slot < 0) {
+                slot = find(s.prefix[len - 1]);
+            }
+        } else if (len > 4 && b[len - 1] == 'g' && b[len - 2] == 'n' && b[len - 3] == 'i') {
+            slot = find(s.prefix[len - 3]);
+        } else if (b[len - 1] == 'y' && b[len - 2] == 'l') {
+            slot = find(s.prefix[len - 2]);
+        }
+        // A stem only counts when it is a sentiment word ("sos" is not "so")
+        return (slot >= 0 && kinds[slot] == SENTIMENT) ? slot : -1;
+    }
+
+    private static int find(long hash) {
+        long h = (hash == 0) ? 1 : hash;
+        int i = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == h) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static void addWeighted(String list, byte kind) {
+        for (String item : list.split(" ")) {
+            int colon = item.indexOf(':');
+            insert(item.substring(0, colon), kind, Float.parseFloat(item.substring(colon + 1)));
+        }
+    }
+
+    private static void insert(String word, byte kind, float value) {
+        long h = FNV_OFFSET;
+        for (int k = 0; k < word.length(); k++) {
+            h = (h ^ word.charAt(k)) * FNV_PRIME;
+        }
+        if (h == 0) {
+            h = 1;
+        }
+        int i = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[i] != 0 && keys[i] != h) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = h;
+        kinds[i] = kind;
+        values[i] = value;
+    }
+
+    private static boolean hasLowerCase(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLowerCase(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
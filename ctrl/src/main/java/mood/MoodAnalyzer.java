@@ -4,47 +4,171 @@ package mood;
  * @author zayn
  */
 import utils.EnvLoader;
-import java.util.Map;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import utils.Metrics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Entry point for mood analysis.
+ *
+ * The backend is chosen with MOOD_BACKEND in the .env file:
+ *   remote - DistilBERT on Hugging Face (default when BEARER_TOKEN is set)
+ *   local  - the in-process lexicon scorer (default otherwise; works offline)
+ * With the local backend, MOOD_SECOND_OPINION=true asks the remote model
+ * whenever the local confidence is below MOOD_SECOND_OPINION_BELOW percent.
+ * Remote results are cached by content (see MoodCache).
+ */
 public class MoodAnalyzer {
 
+    private static final MoodCache cache = new MoodCache();
+
+    private static final MoodBackend remote = new HuggingFaceMoodBackend();
+    private static final MoodBackend local = new LexiconMoodBackend();
+    private static final MoodBackend primary = chooseBackend();
+
+    private static final boolean SECOND_OPINION = Boolean.parseBoolean(EnvLoader.get("MOOD_SECOND_OPINION", "false"));
+    private static final int SECOND_OPINION_BELOW = (int) EnvLoader.getLong("MOOD_SECOND_OPINION_BELOW", 65);
+
+    // Batch settings (.env): texts per request and requests in flight at once
+    private static final int BATCH_SIZE = (int) Math.max(1, EnvLoader.getLong("MOOD_BATCH_SIZE", 16));
+    private static final int BATCH_CONCURRENCY = (int) Math.max(1, EnvLoader.getLong("MOOD_BATCH_CONCURRENCY", 2));
+
+    private static final Metrics.Histogram ANALYZE_TIME = Metrics.histogram("mood.analyze");
+    private static final Metrics.Histogram BATCH_TIME = Metrics.histogram("mood.batch");
+    private static final Metrics.Counter ERRORS = Metrics.counter("mood.errors");
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService batchExecutor = Executors.newFixedThreadPool(BATCH_CONCURRENCY, runnable -> {
+        Thread t = new Thread(runnable, "mood-batch-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static MoodBackend chooseBackend() {
+        String configured = EnvLoader.get("MOOD_BACKEND", HuggingFaceMoodBackend.isConfigured() ? "remote" : "local");
+        MoodBackend backend = configured.equalsIgnoreCase("local") ? local : remote;
+        System.out.println("Mood analysis backend: " + backend.name());
+        return backend;
+    }
+
+    /**
+     * @return true if analyzeMood may call the remote model (I/O), false if it only scores locally (CPU)
+     */
+    public static boolean usesNetwork() {
+        return primary == remote || SECOND_OPINION;
+    }
+
+    /**
+     * Returns the mood of a journal text, e.g. "Positive (98%)".
+     * Identical texts are answered from the cache without calling the API.
+     * @param journalText the entry to analyze
+     * @return the mood label with its confidence, or "Error: ..." on failure
+     */
     public static String analyzeMood(String journalText) {
-        API_Post api = new API_Post();
+        long start = System.nanoTime();
+        String result = analyzeOne(journalText);
+        ANALYZE_TIME.recordSince(start);
+        if (result.startsWith("Error")) {
+            ERRORS.increment();
+        }
+        return result;
+    }
 
-        try {
-            // Load API token from .env (auto-finds the file)
-            Map<String, String> env = EnvLoader.loadEnv();
-            String bearerToken = env.get("BEARER_TOKEN");
-            if (bearerToken == null || bearerToken.isEmpty()) {
-                return "Error: BEARER_TOKEN is not set in the environment.";
+    private static String analyzeOne(String journalText) {
+        if (primary == remote) {
+            return cache.getOrCompute(journalText, remote::analyze);
+        }
+
+        String result = local.analyze(journalText);
+        if (needsSecondOpinion(result)) {
+            String second = cache.getOrCompute(journalText, remote::analyze);
+            if (!second.startsWith("Error")) {
+                return second;
             }
+        }
+        return result;
+    }
 
-            // API endpoint and format JSON body
-            String apiUrl = "https://router.huggingface.co/hf-inference/models/distilbert/distilbert-base-uncased-finetuned-sst-2-english";
-            String jsonBody = "{\"inputs\": \"" + journalText + "\"}";
+    /**
+     * Analyzes many texts with as few requests as possible. Texts that need
+     * the remote model and are not cached are sent MOOD_BATCH_SIZE at a time,
+     * with up to MOOD_BATCH_CONCURRENCY requests running in parallel.
+     * @param journalTexts the entries to analyze
+     * @return one result per text, in the same order ("Error: ..." for failures)
+     */
+    public static List<String> analyzeMoodBatch(List<String> journalTexts) {
+        long start = System.nanoTime();
+        String[] results = new String[journalTexts.size()];
 
-            // Call API
-            String response = api.post(apiUrl, bearerToken, jsonBody);
+        // 1. Which texts need the remote model at all
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < journalTexts.size(); i++) {
+            if (primary == local) {
+                results[i] = local.analyze(journalTexts.get(i));
+                if (!needsSecondOpinion(results[i])) {
+                    continue;
+                }
+            }
+            String cached = cache.peek(journalTexts.get(i));
+            if (cached != null) {
+                results[i] = cached;
+            } else {
+                misses.add(i);
+            }
+        }
 
-            // Parse the returned JSON
-            JSONArray outerArray = new JSONArray(response);
-            JSONArray innerArray = outerArray.getJSONArray(0);
-            JSONObject topResult = innerArray.getJSONObject(0);  // first (highest likelihood)
+        // 2. Remote calls, one request per batch
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int from = 0; from < misses.size(); from += BATCH_SIZE) {
+            List<Integer> batch = misses.subList(from, Math.min(from + BATCH_SIZE, misses.size()));
+            requests.add(CompletableFuture.runAsync(() -> {
+                List<String> texts = new ArrayList<>();
+                for (int i : batch) {
+                    texts.add(journalTexts.get(i));
+                }
+                List<String> moods = remote.analyzeBatch(texts);
+                for (int k = 0; k < batch.size(); k++) {
+                    String mood = moods.get(k);
+                    cache.put(texts.get(k), mood);
+                    // A failed second opinion keeps the local answer
+                    if (results[batch.get(k)] == null || !mood.startsWith("Error")) {
+                        results[batch.get(k)] = mood;
+                    }
+                }
+            }, batchExecutor));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
 
-            String moodLabel = topResult.getString("label");
-            double moodScore = topResult.getDouble("score");
+        BATCH_TIME.recordSince(start);
+        for (String result : results) {
+            if (result != null && result.startsWith("Error")) {
+                ERRORS.increment();
+            }
+        }
 
-            // Optional: simplify label (capitalize only first letter)
-            moodLabel = moodLabel.substring(0, 1).toUpperCase() + moodLabel.substring(1).toLowerCase();
+        return Arrays.asList(results);
+    }
 
-            // Return only mood (and optionally confidence)
-            return moodLabel + " (" + String.format("%.0f%%", moodScore * 100) + ")";
+    private static boolean needsSecondOpinion(String localResult) {
+        return SECOND_OPINION && confidenceOf(localResult) < SECOND_OPINION_BELOW;
+    }
 
-        } catch (Exception e) {
-            // shows full details in console/log
-            return "Error: " + e.getMessage();
+    // "Positive (93%)" -> 93
+    private static int confidenceOf(String result) {
+        int open = result.lastIndexOf('(');
+        int percent = result.lastIndexOf('%');
+        if (open < 0 || percent <= open) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(result.substring(open + 1, percent).trim());
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package mood;
+/**
+ *
+ * @author zayn
+ */
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sentiment engine behind MoodAnalyzer.
+ * Every backend returns results in the same "Label (NN%)" format, e.g.
+ * "Positive (93%)", or a string starting with "Error" on failure.
+ */
+public interface MoodBackend {
+
+    /**
+     * @return short name used in the MOOD_BACKEND setting
+     */
+    String name();
+
+    /**
+     * @param text journal text
+     * @return the mood result
+     */
+    String analyze(String text);
+
+    /**
+     * Analyzes several texts; backends that support real batching override this.
+     * @param texts journal texts
+     * @return one result per text, in the same order
+     */
+    default List<String> analyzeBatch(List<String> texts) {
+        List<String> results = new ArrayList<>();
+        for (String text : texts) {
+            results.add(analyze(text));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,116 @@
+package mood;
+/**
+ *
+ * @author zayn
+ */
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import java.util.ArrayList;
+import java.util.List;
+import journalpage.JournalSyncWorker;
+import journalpage.journalApp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import utils.MongoDBConnection;
+
+/**
+ * Re-scores journal entries whose mood is missing, "Unknown" or an error.
+ *
+ * Entries are streamed from MongoDB in chunks, scored with
+ * MoodAnalyzer.analyzeMoodBatch and written back with one bulkWrite per
+ * chunk. Entries that still fail keep their old mood and are picked up by
+ * the next run.
+ *
+ * A mood is only written if the entry is still the version that was scored
+ * (same text and updatedAt). updatedAt then moves up by one millisecond, so
+ * the local journal stores pull the new mood, while an offline edit that has
+ * not been pushed yet (always newer) still wins over it.
+ *
+ * Run from the ctrl/ directory (so the .env file is found):
+ *   java -cp target/ctrl-app.jar mood.MoodBackfillJob [email]
+ */
+public class MoodBackfillJob {
+
+    private static final int CHUNK_SIZE = 256;
+
+    public static void main(String[] args) {
+        String email = (args.length > 0) ? args[0] : null;
+        int updated = run(email);
+        System.out.println("Mood backfill finished: " + updated + " entries updated.");
+        MongoDBConnection.closeConnection();
+    }
+
+    /**
+     * @param email only re-score this user's entries, or null for everyone
+     * @return number of entries that got a new mood
+     */
+    public static int run(String email) {
+        MongoCollection<Document> journals = MongoDBConnection.getDatabase().getCollection("journals");
+
+        Bson needsMood = Filters.and(
+                Filters.or(
+                        Filters.eq("mood", null),
+                        Filters.in("mood", "", "Unknown"),
+                        Filters.regex("mood", "^Error")),
+                Filters.type("entry", "string"),
+                Filters.ne("entry", ""));
+        Bson filter = (email == null) ? needsMood : Filters.and(Filters.eq("email", email), needsMood);
+
+        int updated = 0;
+        List<Document> chunk = new ArrayList<>();
+        for (Document doc : journals.find(filter).projection(Projections.include("_id", "entry", "updatedAt"))) {
+            chunk.add(doc);
+            if (chunk.size() == CHUNK_SIZE) {
+                updated += scoreChunk(journals, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            updated += scoreChunk(journals, chunk);
+        }
+        return updated;
+    }
+
+    private static int scoreChunk(MongoCollection<Document> journals, List<Document> chunk) {
+        List<String> texts = new ArrayList<>();
+        for (Document doc : chunk) {
+            texts.add(doc.getString("entry"));
+        }
+        List<String> moods = MoodAnalyzer.analyzeMoodBatch(texts);
+
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String mood = moods.get(i);
+            if (mood == null || mood.startsWith("Error")) {
+                continue;
+            }
+            Document doc = chunk.get(i);
+            Object readUpdatedAt = doc.get("updatedAt");
+            long version = (readUpdatedAt instanceof Number n) ? n.longValue() : 0L;
+
+            // 1. Skip entries edited since they were read (null also matches a missing field)
+            Bson unchanged = Filters.and(
+                    Filters.eq("_id", doc.get("_id")),
+                    Filters.eq("entry", doc.getString("entry")),
+                    Filters.eq("updatedAt", readUpdatedAt));
+
+            // 2. Just past the version we read, never a wall-clock time that could beat a pending local edit
+            writes.add(new UpdateOneModel<>(unchanged, Updates.combine(
+                    Updates.set("mood", journalApp.extractMoodCategory(mood)),
+                    Updates.max("updatedAt", version + 1),
+                    Updates.currentDate(JournalSyncWorker.SYNCED_AT_FIELD))));
+        }
+        if (writes.isEmpty()) {
+            System.err.println("Mood backfill: no entries could be scored in this chunk.");
+            return 0;
+        }
+        int modified = journals.bulkWrite(writes, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        System.out.println("Mood backfill: re-scored " + modified + " of " + chunk.size() + " entries.");
+        return modified;
+    }
+}
@@ -0,0 +1,226 @@
+package mood;
+/**
+ *
+ * @author zayn
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import utils.EnvLoader;
+
+/**
+ * Cache for mood analysis results, keyed by a hash of the normalized text.
+ *
+ * Tier 1 is an in-memory LRU of MOOD_CACHE_SIZE results. Tier 2 is a file
+ * of "hash TAB result" lines that survives restarts; it is read once, into
+ * a larger LRU of MOOD_DISK_CACHE_SIZE results, and appended to on every new
+ * result. Once the file holds twice as many lines as that LRU it is
+ * rewritten with only the live entries. Concurrent requests for the same
+ * text share a single call (single flight). Error results are never cached.
+ *
+ * The two tiers have separate locks, so a memory hit never waits for the
+ * file to be read or written.
+ */
+public class MoodCache {
+
+    private static final Path CACHE_FILE = Paths.get("cache", "mood-cache.txt");
+    private static final int DEFAULT_CAPACITY = 512;
+    private static final int DEFAULT_DISK_CAPACITY = 8192;
+
+    private final int capacity = (int) Math.max(1, EnvLoader.getLong("MOOD_CACHE_SIZE", DEFAULT_CAPACITY));
+    private final int diskCapacity = (int) Math.max(capacity, EnvLoader.getLong("MOOD_DISK_CACHE_SIZE", DEFAULT_DISK_CAPACITY));
+
+    private final Map<String, String> memory = lru(capacity); // Guarded by this
+
+    private final Object diskLock = new Object();
+    private Map<String, String> disk = null; // Guarded by diskLock; loaded on first miss
+    private int diskLines = 0;               // Lines in CACHE_FILE, live or not
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached result for the text, or computes it once.
+     *
+     * @param text journal text
+     * @param analyzer the uncached analysis, called at most once per text at a time
+     * @return the mood result, e.g. "Positive (98%)"
+     */
+    public String getOrCompute(String text, Function<String, String> analyzer) {
+        String key = keyFor(text);
+
+        String cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Single flight: the first caller computes, the others wait for its result
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            // Another caller may have finished between our lookup and putIfAbsent
+            String result = lookup(key);
+            if (result != null) {
+                mine.complete(result);
+                return result;
+            }
+            result = analyzer.apply(text);
+            if (result != null && !result.startsWith("Error")) {
+                store(key, result);
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    /**
+     * @param text journal text
+     * @return the cached result, or null on a miss
+     */
+    public String peek(String text) {
+        return lookup(keyFor(text));
+    }
+
+    /**
+     * Adds a result computed elsewhere (e.g. by a batch call).
+     * @param text journal text
+     * @param result the mood result
+     */
+    public void put(String text, String result) {
+        if (result != null && !result.startsWith("Error")) {
+            store(keyFor(text), result);
+        }
+    }
+
+    private String lookup(String key) {
+        synchronized (this) {
+            String result = memory.get(key);
+            if (result != null) {
+                return result;
+            }
+        }
+        String result;
+        synchronized (diskLock) {
+            result = loadDisk().get(key);
+        }
+        if (result != null) {
+            synchronized (this) {
+                memory.put(key, result); // Promote to the LRU tier
+            }
+        }
+        return result;
+    }
+
+    private void store(String key, String result) {
+        synchronized (this) {
+            memory.put(key, result);
+        }
+        synchronized (diskLock) {
+            if (result.equals(loadDisk().put(key, result))) {
+                return;
+            }
+            try {
+                Files.createDirectories(CACHE_FILE.getParent());
+                try (BufferedWriter bw = Files.newBufferedWriter(CACHE_FILE, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    bw.write(key + "\t" + result);
+                    bw.newLine();
+                }
+                diskLines++;
+            } catch (IOException e) {
+                System.err.println("Could not persist mood cache: " + e.getMessage());
+            }
+            compactIfNeeded();
+        }
+    }
+
+    // Caller holds diskLock
+    private Map<String, String> loadDisk() {
+        if (disk != null) {
+            return disk;
+        }
+        disk = lru(diskCapacity);
+        if (Files.exists(CACHE_FILE)) {
+            try (BufferedReader br = Files.newBufferedReader(CACHE_FILE, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0) {
+                        disk.put(line.substring(0, tab), line.substring(tab + 1)); // Later lines win
+                    }
+                    diskLines++;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read mood cache: " + e.getMessage());
+            }
+        }
+        compactIfNeeded();
+        return disk;
+    }
+
+    // Caller holds diskLock. Rewrites the file with the live entries, least recently used first,
+    // so reading it back gives the same LRU order.
+    private void compactIfNeeded() {
+        if (diskLines <= 2 * diskCapacity) {
+            return;
+        }
+        Path temp = CACHE_FILE.resolveSibling("mood-cache.txt.tmp");
+        try {
+            try (BufferedWriter bw = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> e : disk.entrySet()) {
+                    bw.write(e.getKey() + "\t" + e.getValue());
+                    bw.newLine();
+                }
+            }
+            Files.move(temp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskLines = disk.size();
+        } catch (IOException e) {
+            System.err.println("Could not compact mood cache: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, String> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The model is uncased and ignores layout, so case and runs of whitespace
+     * do not change the result and are normalized away before hashing.
+     */
+    static String keyFor(String text) {
+        String normalized = (text == null) ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(normalized.hashCode()) + ":" + normalized.length();
+        }
+    }
+}
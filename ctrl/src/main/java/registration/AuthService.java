@@ -0,0 +1,83 @@
+package registration;
+/**
+ *
+ * @author chee
+ */
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import utils.EnvLoader;
+
+/**
+ * Runs sign-ins and registrations off the FX thread.
+ *
+ * Password hashing is made slow on purpose (see PasswordHasher), so it gets
+ * its own small pool: AUTH_THREADS workers (default: up to 4, one per core)
+ * and a queue of AUTH_QUEUE waiting requests (default 64). When both are
+ * full the request fails straight away instead of piling up; controllers
+ * check {@link #isBusy(Throwable)} and ask the user to try again.
+ */
+public class AuthService {
+
+    private static final int THREADS = (int) Math.max(1, EnvLoader.getLong("AUTH_THREADS",
+            Math.min(4, Runtime.getRuntime().availableProcessors())));
+    private static final int QUEUE = (int) Math.max(1, EnvLoader.getLong("AUTH_QUEUE", 64));
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            THREADS, THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE),
+            runnable -> {
+                Thread t = new Thread(runnable, "auth-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    static {
+        executor.allowCoreThreadTimeOut(true); // No idle threads once everyone is signed in
+    }
+
+    /**
+     * Checks the credentials, upgrading an old password hash on success.
+     * @param email the account's email
+     * @param password the plain password
+     * @return future with the user, or null if the email or password is wrong
+     */
+    public static CompletableFuture<User> login(String email, String password) {
+        return submit(() -> UserManager.getInstance().login(email, password));
+    }
+
+    /**
+     * Creates an account.
+     * @param email the account's email
+     * @param displayName the name shown in the app
+     * @param password the plain password
+     * @return future with false if the email is invalid or already taken
+     */
+    public static CompletableFuture<Boolean> register(String email, String displayName, String password) {
+        return submit(() -> UserManager.getInstance().register(email, displayName, password));
+    }
+
+    /**
+     * @param error a failure from one of the futures above
+     * @return true if it failed only because too many requests were waiting
+     */
+    public static boolean isBusy(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException;
+    }
+
+    private static <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Auth queue full (" + QUEUE + " waiting), rejecting request");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -7,19 +7,17 @@ package registration;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode; // Import KeyCode
 import javafx.scene.layout.StackPane;
-import javafx.stage.Stage;
 import utils.GlobalVideoManager; 
+import utils.SceneNavigator;
+import utils.ScreenLifecycle;
+import utils.TaskScheduler;
 import utils.WeatherBackgroundManager;
-import java.io.IOException;
 
-public class LoginController {
+public class LoginController implements ScreenLifecycle {
 
     @FXML private StackPane rootPane;
     @FXML private StackPane videoContainer;
@@ -27,58 +25,53 @@ public class LoginController {
     @FXML private TextField emailField;
     @FXML private PasswordField passwordField;
     @FXML private Label errorLabel;
+    @FXML private Button loginButton;
 
-    private final UserManager userManager = new UserManager();
+    // Background work of this screen, cancelled when it is hidden
+    private final TaskScheduler.Scope tasks = TaskScheduler.scope("login");
 
-    @FXML
-    public void initialize() {
+    // Runs on every visit, since the screen is cached by SceneNavigator
+    @Override
+    public void onShow() {
+        passwordField.clear(); // Don't keep the last user's password around
+        errorLabel.setVisible(false);
         weatherLabel.setText("Loading weather...");
+        attachVideoToBackground();
 
         // 1. Fetch Weather & Video
-        new Thread(() -> {
-            String weather = WeatherBackgroundManager.getCurrentWeather();
-            String videoFile = WeatherBackgroundManager.getVideoFileForWeather(weather);
-
-            Platform.runLater(() -> {
-                weatherLabel.setText("Current Weather: " + weather);
-                GlobalVideoManager.updateWeatherVideo(videoFile);
-                attachVideoToBackground();
-            });
-        }).start();
+        tasks.io("weather", WeatherBackgroundManager::getCurrentWeather, weather -> {
+            weatherLabel.setText("Current Weather: " + weather);
+            GlobalVideoManager.updateWeatherVideo(WeatherBackgroundManager.getVideoFileForWeather(weather));
+        }, null);
         
         // 2. Add Key Listeners (Escape & Enter)
-        Platform.runLater(() -> {
-            Scene scene = rootPane.getScene();
-            if (scene != null) {
-                scene.setOnKeyPressed(event -> {
-                    // ESCAPE: Close the application
-                    if (event.getCode() == KeyCode.ESCAPE) {
-                        Platform.exit();
-                        System.exit(0); 
-                    }
-                    // ENTER: Trigger Login
-                    else if (event.getCode() == KeyCode.ENTER) {
-                        handleLogin(null); // Pass null because we refactored handleLogin to not need the event source
-                    }
-                });
-                
-                // Optional: Request focus on email field by default
-                emailField.requestFocus();
-            }
-        });
+        Scene scene = rootPane.getScene();
+        if (scene != null) {
+            scene.setOnKeyPressed(event -> {
+                // ESCAPE: Close the application
+                if (event.getCode() == KeyCode.ESCAPE) {
+                    Platform.exit();
+                    System.exit(0); 
+                }
+                // ENTER: Trigger Login
+                else if (event.getCode() == KeyCode.ENTER) {
+                    handleLogin(null); // Pass null because we refactored handleLogin to not need the event source
+                }
+            });
+            
+            // Optional: Request focus on email field by default
+            emailField.requestFocus();
+        }
     }
 
-    private void attachVideoToBackground() {
-        var sharedView = GlobalVideoManager.getSharedMediaView();
+    @Override
+    public void onHide() {
+        tasks.cancelAll(); // A late weather answer must not touch a hidden screen
+    }
 
-        if (sharedView != null && videoContainer != null) {
-            videoContainer.getChildren().clear();
-            videoContainer.getChildren().add(sharedView);
-            sharedView.fitWidthProperty().bind(rootPane.widthProperty());
-            sharedView.fitHeightProperty().bind(rootPane.heightProperty());
-            sharedView.setPreserveRatio(false);
-            sharedView.toBack();
-        }
+    private void attachVideoToBackground() {
+        // Move the shared (crossfading) video layer behind this screen
+        GlobalVideoManager.attachTo(videoContainer, rootPane);
     }
 
     @FXML
@@ -92,53 +85,36 @@ public class LoginController {
             return;
         }
 
-        User user = userManager.login(email, password);
-
-        if (user != null) {
-            UserSession.getInstance().saveSession(user);
-            System.out.println("Login Successful: " + user.getDisplayName());
-
-            // FIX: Get Stage from a specific node (emailField) instead of the event source.
-            // This ensures it works even if 'event' is null (triggered by Enter key).
-            Stage stage = (Stage) emailField.getScene().getWindow();
-
-            goToLandingPage(stage, user.getDisplayName());
-
-        } else {
-            errorLabel.setText("Invalid email or password.");
-            errorLabel.setVisible(true);
-        }
-    }
-
-    private void goToLandingPage(Stage stage, String userName) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/LandingPage.fxml"));
-            Parent root = loader.load();
-
-            landingpage.LandingPageController controller = loader.getController();
-            controller.setUserName(userName);
-
-            stage.setScene(new Scene(root));
-            stage.setFullScreenExitHint("");
-            stage.setFullScreen(true);
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("Error loading LandingPage.fxml: " + e.getMessage());
+        // Already checking (e.g. Enter pressed twice)
+        if (loginButton.isDisable()) {
+            return;
         }
+        loginButton.setDisable(true);
+        errorLabel.setVisible(false);
+
+        // Password hashing runs on the auth pool; the UI stays responsive meanwhile
+        AuthService.login(email, password).whenComplete((user, error) -> Platform.runLater(() -> {
+            loginButton.setDisable(false);
+            if (error != null) {
+                errorLabel.setText(AuthService.isBusy(error)
+                        ? "Too many sign-ins right now. Please try again."
+                        : "Login failed. Please try again.");
+                errorLabel.setVisible(true);
+            } else if (user != null) {
+                UserSession.getInstance().saveSession(user);
+                System.out.println("Login Successful: " + user.getDisplayName());
+
+                SceneNavigator.show(SceneNavigator.Screen.LANDING);
+
+            } else {
+                errorLabel.setText("Invalid email or password.");
+                errorLabel.setVisible(true);
+            }
+        }));
     }
 
     @FXML
     private void switchToRegister(ActionEvent event) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/registration/Register.fxml"));
-            Parent root = loader.load();
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setFullScreen(true);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        SceneNavigator.show(SceneNavigator.Screen.REGISTER);
     }
-}
\ No newline at end of file
+}
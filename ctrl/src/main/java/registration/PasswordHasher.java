@@ -0,0 +1,134 @@
+package registration;
+/**
+ *
+ * @author chee
+ */
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.HexFormat;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import utils.EnvLoader;
+
+/**
+ * Password hashing with PBKDF2-HMAC-SHA256.
+ *
+ * Hashes are stored as "pbkdf2$iterations$hex" in the password field, with
+ * the salt in its own field as before. The work factor is
+ * AUTH_PBKDF2_ITERATIONS (default 600000) and is kept in every hash, so it
+ * can be raised later: older hashes still verify and are flagged for an
+ * upgrade. Accounts created before this class existed hold one round of
+ * SHA-256 over password + salt; those verify too and always need an upgrade.
+ *
+ * Hashing is deliberately slow. Call it through AuthService, not on the FX thread.
+ */
+public class PasswordHasher {
+
+    public static final int ITERATIONS = (int) Math.max(10_000, EnvLoader.getLong("AUTH_PBKDF2_ITERATIONS", 600_000));
+
+    private static final String PREFIX = "pbkdf2$";
+    private static final int KEY_BITS = 256;
+    private static final int SALT_BYTES = 16;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final HexFormat hex = HexFormat.of();
+
+    /**
+     * @return a new random salt, as hex
+     */
+    static String newSalt() {
+        byte[] saltBytes = new byte[SALT_BYTES];
+        random.nextBytes(saltBytes);
+        return hex.formatHex(saltBytes);
+    }
+
+    /**
+     * @param password the plain password
+     * @param salt the user's salt
+     * @return the stored form, e.g. "pbkdf2$600000$3f9a..."
+     */
+    static String hash(String password, String salt) {
+        return PREFIX + ITERATIONS + "$" + hex.formatHex(pbkdf2(password, salt, ITERATIONS));
+    }
+
+    /**
+     * Checks a password against a user's stored hash in constant time.
+     * @param password the plain password
+     * @param user the account
+     * @return true if the password is right
+     */
+    static boolean matches(String password, User user) {
+        String stored = user.getPassword();
+        byte[] expected;
+        byte[] actual;
+        if (stored.startsWith(PREFIX)) {
+            // 1. "pbkdf2$iterations$hex"
+            String[] parts = stored.split("\\$");
+            if (parts.length != 3) {
+                return false;
+            }
+            try {
+                expected = hex.parseHex(parts[2]);
+                actual = pbkdf2(password, user.getSalt(), Integer.parseInt(parts[1]));
+            } catch (IllegalArgumentException e) {
+                return false; // Damaged record
+            }
+        } else {
+            // 2. Legacy: hex SHA-256 of password + salt
+            expected = stored.getBytes(StandardCharsets.US_ASCII);
+            actual = legacyHash(password, user.getSalt()).getBytes(StandardCharsets.US_ASCII);
+        }
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * @param user the account
+     * @return true if the hash is legacy or weaker than the current work factor
+     */
+    static boolean needsRehash(User user) {
+        String stored = user.getPassword();
+        if (!stored.startsWith(PREFIX)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 3 || Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Spends the same time as a real check, so an unknown email cannot be
+     * told apart from a wrong password by how long the answer takes.
+     * @param password the plain password
+     */
+    static void simulateCheck(String password) {
+        pbkdf2(password, "0000000000000000", ITERATIONS);
+    }
+
+    private static byte[] pbkdf2(String password, String salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(StandardCharsets.UTF_8), iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new RuntimeException("Error hashing password: " + e.getMessage());
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // The original scheme, kept only to verify (and then upgrade) old accounts
+    private static String legacyHash(String password, String salt) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hashedBytes = md.digest((password + salt).getBytes());
+            return hex.formatHex(hashedBytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error hashing password: " + e.getMessage());
+        }
+    }
+}
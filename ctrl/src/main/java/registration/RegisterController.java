@@ -7,18 +7,17 @@ package registration;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode; // Import KeyCode
 import javafx.scene.layout.StackPane;
-import javafx.stage.Stage;
 import utils.GlobalVideoManager;
+import utils.SceneNavigator;
+import utils.ScreenLifecycle;
+import utils.TaskScheduler;
 import utils.WeatherBackgroundManager;
-import java.io.IOException;
 
-public class RegisterController {
+public class RegisterController implements ScreenLifecycle {
 
     @FXML private StackPane rootPane;
     @FXML private StackPane videoContainer;
@@ -27,58 +26,56 @@ public class RegisterController {
     @FXML private TextField regEmailField;
     @FXML private PasswordField regPasswordField;
     @FXML private Label errorLabel;
+    @FXML private Button registerButton;
 
-    private final UserManager userManager = new UserManager();
+    // Background work of this screen, cancelled when it is hidden
+    private final TaskScheduler.Scope tasks = TaskScheduler.scope("register");
 
-    @FXML
-    public void initialize() {
+    // Shared with the other screens, so users registered since the last visit are known
+    private final UserManager userManager = UserManager.getInstance();
+
+    // Runs on every visit, since the screen is cached by SceneNavigator
+    @Override
+    public void onShow() {
+        regPasswordField.clear();
+        errorLabel.setVisible(false);
         weatherLabel.setText("Loading weather...");
+        attachVideoToBackground();
 
         // 1. Run in background to avoid UI freeze
-        new Thread(() -> {
-            String weather = WeatherBackgroundManager.getCurrentWeather();
-            String videoFile = WeatherBackgroundManager.getVideoFileForWeather(weather);
-
-            Platform.runLater(() -> {
-                weatherLabel.setText("Current Weather: " + weather);
-                GlobalVideoManager.updateWeatherVideo(videoFile);
-                attachVideoToBackground();
-            });
-        }).start();
+        tasks.io("weather", WeatherBackgroundManager::getCurrentWeather, weather -> {
+            weatherLabel.setText("Current Weather: " + weather);
+            GlobalVideoManager.updateWeatherVideo(WeatherBackgroundManager.getVideoFileForWeather(weather));
+        }, null);
 
         // 2. Add Key Listeners (Escape & Enter)
-        Platform.runLater(() -> {
-            Scene scene = rootPane.getScene();
-            if (scene != null) {
-                scene.setOnKeyPressed(event -> {
-                    // ESCAPE: Close the application
-                    if (event.getCode() == KeyCode.ESCAPE) {
-                        Platform.exit();
-                        System.exit(0);
-                    }
-                    // ENTER: Trigger Registration
-                    else if (event.getCode() == KeyCode.ENTER) {
-                        handleRegister(null); // Pass null as we refactored the method
-                    }
-                });
-                
-                // Optional: Focus the Name field first
-                regNameField.requestFocus();
-            }
-        });
+        Scene scene = rootPane.getScene();
+        if (scene != null) {
+            scene.setOnKeyPressed(event -> {
+                // ESCAPE: Close the application
+                if (event.getCode() == KeyCode.ESCAPE) {
+                    Platform.exit();
+                    System.exit(0);
+                }
+                // ENTER: Trigger Registration
+                else if (event.getCode() == KeyCode.ENTER) {
+                    handleRegister(null); // Pass null as we refactored the method
+                }
+            });
+            
+            // Optional: Focus the Name field first
+            regNameField.requestFocus();
+        }
+    }
+
+    @Override
+    public void onHide() {
+        tasks.cancelAll(); // A late weather answer must not touch a hidden screen
     }
 
     private void attachVideoToBackground() {
-        var sharedView = GlobalVideoManager.getSharedMediaView();
-
-        if (sharedView != null && videoContainer != null) {
-            videoContainer.getChildren().clear();
-            videoContainer.getChildren().add(sharedView);
-            sharedView.fitWidthProperty().bind(rootPane.widthProperty());
-            sharedView.fitHeightProperty().bind(rootPane.heightProperty());
-            sharedView.setPreserveRatio(false);
-            sharedView.toBack();
-        }
+        // Move the shared (crossfading) video layer behind this screen
+        GlobalVideoManager.attachTo(videoContainer, rootPane);
     }
 
     @FXML
@@ -101,35 +98,33 @@ public class RegisterController {
                 return;
             }
 
-        // 1. Attempt Registration
-        boolean success = userManager.register(email, name, password);
-
-        if (success) {
-            System.out.println("Registration Successful: " + name);
-            // 2. Redirect to Login
-            switchToLogin(event);
-        } else {
-            errorLabel.setText("Email already exists.");
-            errorLabel.setVisible(true);
+        if (registerButton.isDisable()) {
+            return; // Already registering
         }
+        registerButton.setDisable(true);
+        errorLabel.setVisible(false);
+
+        // 1. Attempt Registration (hashing runs on the auth pool)
+        AuthService.register(email, name, password).whenComplete((success, error) -> Platform.runLater(() -> {
+            registerButton.setDisable(false);
+            if (error != null) {
+                showError(AuthService.isBusy(error)
+                        ? "Too many requests right now. Please try again."
+                        : "Registration failed. Please try again.");
+            } else if (success) {
+                System.out.println("Registration Successful: " + name);
+                // 2. Redirect to Login
+                switchToLogin(event);
+            } else {
+                errorLabel.setText("Email already exists.");
+                errorLabel.setVisible(true);
+            }
+        }));
     }
 
     @FXML
     private void switchToLogin(ActionEvent event) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/registration/Login.fxml"));
-            Parent root = loader.load();
-
-            // FIX: Get stage from a UI element (regNameField) so it works with Enter key
-            Stage stage = (Stage) regNameField.getScene().getWindow();
-            
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setFullScreen(true);
-
-        } catch (IOException e) {
-            System.err.println("Error loading Login.fxml");
-        }
+        SceneNavigator.show(SceneNavigator.Screen.LOGIN);
     }
 
     private void showError(String message) {
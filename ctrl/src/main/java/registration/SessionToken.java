@@ -0,0 +1,146 @@
+package registration;
+/**
+ *
+ * @author chee
+ */
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import utils.EnvLoader;
+
+/**
+ * Signed contents of session.token, so a session can be restored without
+ * reading the user store.
+ *
+ * Format: "v2." + base64url(expiry TAB email TAB displayName) + "." +
+ * base64url(HMAC-SHA256 of the part before the last dot). The key is 32
+ * random bytes kept in session.key, created on first use. A token that was
+ * edited, signed with another key or has expired does not verify. Tokens
+ * last SESSION_DAYS (default 30) from the last sign-in.
+ */
+public class SessionToken {
+
+    private static final String VERSION = "v2";
+    private static final Path KEY_FILE = Paths.get("session.key");
+    private static final Duration LIFETIME = Duration.ofDays(Math.max(1, EnvLoader.getLong("SESSION_DAYS", 30)));
+
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder decoder = Base64.getUrlDecoder();
+
+    private static byte[] key;
+
+    /**
+     * What a valid token says about its user.
+     * @param email the user's email
+     * @param displayName the name shown in the app
+     * @param expiresAt when the token stops being accepted
+     */
+    public record Claims(String email, String displayName, Instant expiresAt) {
+    }
+
+    /**
+     * @param user the signed-in user
+     * @return a signed token for session.token
+     */
+    static String issue(User user) {
+        String expiry = Long.toString(Instant.now().plus(LIFETIME).getEpochSecond());
+        String payload = expiry + "\t" + user.getEmail() + "\t" + user.getDisplayName();
+        String body = VERSION + "." + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return body + "." + encoder.encodeToString(sign(body));
+    }
+
+    /**
+     * @param token contents of session.token
+     * @return true if it is in this format (valid or not), false for the old plain-email files
+     */
+    static boolean isSigned(String token) {
+        return token.startsWith(VERSION + ".");
+    }
+
+    /**
+     * @param token contents of session.token
+     * @return the claims, or null if the token is damaged, forged or expired
+     */
+    static Claims verify(String token) {
+        int lastDot = token.lastIndexOf('.');
+        if (!isSigned(token) || lastDot <= VERSION.length()) {
+            return null;
+        }
+        try {
+            // 1. Signature first, in constant time
+            String body = token.substring(0, lastDot);
+            byte[] tag = decoder.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(tag, sign(body))) {
+                return null;
+            }
+
+            // 2. Then the contents
+            String payload = new String(decoder.decode(body.substring(VERSION.length() + 1)), StandardCharsets.UTF_8);
+            String[] f = payload.split("\t", 3); // The display name may contain anything
+            if (f.length != 3) {
+                return null;
+            }
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(f[0]));
+            if (Instant.now().isAfter(expiresAt)) {
+                return null;
+            }
+            return new Claims(f[1], f[2], expiresAt);
+        } catch (IllegalArgumentException e) {
+            return null; // Not base64 or not a number
+        }
+    }
+
+    private static byte[] sign(String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key(), "HmacSHA256"));
+            return mac.doFinal(body.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error signing session: " + e.getMessage());
+        }
+    }
+
+    private static synchronized byte[] key() {
+        if (key != null) {
+            return key;
+        }
+        try {
+            if (Files.exists(KEY_FILE)) {
+                byte[] stored = HexFormat.of().parseHex(Files.readString(KEY_FILE).trim());
+                if (stored.length >= 16) {
+                    key = stored;
+                    return key;
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Unreadable session key, creating a new one: " + e.getMessage());
+        }
+
+        // First run (or a damaged key): older tokens simply stop verifying
+        key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        try {
+            Files.writeString(KEY_FILE, HexFormat.of().formatHex(key));
+            try {
+                Files.setPosixFilePermissions(KEY_FILE, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system (Windows)
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to save session key: " + e.getMessage());
+        }
+        return key;
+    }
+}
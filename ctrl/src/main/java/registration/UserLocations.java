@@ -0,0 +1,140 @@
+package registration;
+/**
+ *
+ * @author chee
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import utils.WeatherService;
+
+/**
+ * Per-user weather location setting, e.g. "Johor Bahru".
+ *
+ * Stored as "email TAB location" lines in UserLocations.txt next to
+ * UserData.txt. Besides email -> location, a location -> users index is
+ * kept so the weather service can fetch every location in use with one
+ * request. Users without a setting get the default location.
+ */
+public class UserLocations {
+
+    private static final Path FILE = Paths.get("UserLocations.txt");
+
+    private static Map<String, String> locationByEmail = null;    // lowercased email -> location
+    private static final Map<String, Set<String>> usersByLocation = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * @param email the user's email
+     * @return the user's location, or null if they have not picked one
+     */
+    public static synchronized String getLocation(String email) {
+        return load().get(email.toLowerCase());
+    }
+
+    /**
+     * Saves the user's location and makes it part of the weather refresh.
+     * If the user is signed in, weather lookups switch to it right away.
+     * @param email the user's email
+     * @param location forecast location name as used by api.data.gov.my
+     */
+    public static void setLocation(String email, String location) {
+        synchronized (UserLocations.class) {
+            String key = email.toLowerCase();
+            unindex(key, load().put(key, location.trim()));
+            index(key, location.trim());
+            save();
+        }
+
+        WeatherService.addActiveLocations(Set.of(location.trim()));
+        User current = UserSession.getInstance().getCurrentUser();
+        if (current != null && current.getEmail().equalsIgnoreCase(email)) {
+            WeatherService.setCurrentLocation(location.trim());
+        }
+    }
+
+    /**
+     * @return every location at least one user has chosen
+     */
+    public static synchronized Set<String> getActiveLocations() {
+        load();
+        return Collections.unmodifiableSet(new LinkedHashSet<>(usersByLocation.keySet()));
+    }
+
+    /**
+     * Points the weather service at this user's location and registers all
+     * known locations for the bulk refresh. Called when a session starts.
+     * @param user the signed-in user, or null after logout
+     */
+    static void applyTo(User user) {
+        WeatherService.addActiveLocations(getActiveLocations());
+        WeatherService.setCurrentLocation(user == null ? null : getLocation(user.getEmail()));
+    }
+
+    private static Map<String, String> load() {
+        if (locationByEmail != null) {
+            return locationByEmail;
+        }
+        locationByEmail = new HashMap<>();
+        if (Files.exists(FILE)) {
+            try (BufferedReader br = Files.newBufferedReader(FILE, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0 && tab < line.length() - 1) {
+                        locationByEmail.put(line.substring(0, tab).toLowerCase(), line.substring(tab + 1));
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Error loading user locations: " + e.getMessage());
+            }
+        }
+        for (Map.Entry<String, String> e : locationByEmail.entrySet()) {
+            index(e.getKey(), e.getValue());
+        }
+        return locationByEmail;
+    }
+
+    private static void index(String key, String location) {
+        usersByLocation.computeIfAbsent(location, k -> new LinkedHashSet<>()).add(key);
+    }
+
+    private static void unindex(String key, String oldLocation) {
+        if (oldLocation == null) {
+            return;
+        }
+        Set<String> users = usersByLocation.get(oldLocation);
+        if (users != null) {
+            users.remove(key);
+            if (users.isEmpty()) {
+                usersByLocation.remove(oldLocation);
+            }
+        }
+    }
+
+    private static void save() {
+        // The file is small, so it is rewritten whole (via a temp file, so a crash keeps the old one)
+        Path temp = Paths.get(FILE + ".tmp");
+        try {
+            try (BufferedWriter bw = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> e : locationByEmail.entrySet()) {
+                    bw.write(e.getKey() + "\t" + e.getValue());
+                    bw.newLine();
+                }
+            }
+            Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Error saving user locations: " + e.getMessage());
+        }
+    }
+}
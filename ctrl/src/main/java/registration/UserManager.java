@@ -3,185 +3,104 @@ package registration;
  *
  * @author chee
  */
-import java.io.*;
-import java.security.*;
-import java.util.*;
+import java.util.regex.Pattern;
 
 public class UserManager {
-    private final String filePath = "UserData.txt";
-    private final ArrayList<User> users = new ArrayList<>();
+    // Basic email validation regex pattern, compiled once
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
 
-    public UserManager() {
-        loadUsers();
-    }
-
-    private String hashPassword(String password, String salt) {
-    try {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        String combined = password + salt; // combine password + salt
-        byte[] hashedBytes = md.digest(combined.getBytes());
-        StringBuilder sb = new StringBuilder();
-        for (byte b : hashedBytes) {
-            sb.append(String.format("%02x", b));//covert to hex
-        }
-        return sb.toString();
-    } catch (NoSuchAlgorithmException e) {
-        throw new RuntimeException("Error hashing password: " + e.getMessage());
-    }
-}
+    private static UserManager instance;
 
+    // Users by normalized email; shared with every other screen and kept in step with other app instances
+    private final UserStore store = UserStore.getInstance();
 
-    private String generateSalt() {
-        SecureRandom random = new SecureRandom();
-        byte[] saltBytes = new byte[8]; // 8 bytes = 64 bits of salt
-        random.nextBytes(saltBytes);
-        StringBuilder sb = new StringBuilder();
-        for (byte b : saltBytes) {
-            sb.append(String.format("%02x", b));
+    // One shared instance, so UserData.txt is only loaded once per run
+    public static synchronized UserManager getInstance() {
+        if (instance == null) {
+            instance = new UserManager();
         }
-        return sb.toString();
+        return instance;
     }
 
-
-    private void loadUsers() {
-        File file = new File(filePath);
-        try {
-            // Create the file if it doesn't exist
-            if (!file.exists()) {
-                File parent = file.getParentFile();
-                if (parent != null && !parent.exists()) {
-                    parent.mkdirs();
-                }
-                file.createNewFile();
-            }
-
-            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-                String email, displayName, password;
-                while ((email = br.readLine()) != null) {
-                    displayName = br.readLine();
-                    password = br.readLine();
-                    String salt = br.readLine();
-                    users.add(new User(email, displayName, password, salt));
-                }
-            }
-        } catch (IOException e) {
-            System.out.println("Error loading users: " + e.getMessage());
-        }
-    }
-
-   private void saveAllUsers() {
-    try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
-        for (int i = 0; i < users.size(); i++) {
-            User u = users.get(i);
-            bw.write(u.getEmail());
-            bw.newLine();
-            bw.write(u.getDisplayName());
-            bw.newLine();
-            bw.write(u.getPassword());
-            bw.newLine();
-            bw.write(u.getSalt());
-
-            // Prevent adding an extra blank line after the last user
-            if (i < users.size() - 1) {
-                bw.newLine();
-            }
-        }
-    } catch (IOException e) {
-        System.out.println("Error saving users: " + e.getMessage());
+    private UserManager() {
     }
-}
-
 
     public boolean isValidEmail(String email) {
-        // Basic email validation regex pattern
-        String emailRegex = "^[A-Za-z0-9+_.-]+@(.+)$";
-        return email != null && email.matches(emailRegex);
+        return email != null && EMAIL_PATTERN.matcher(email).matches();
     }
 
     public boolean emailExists(String email) {
-        for (User u : users) {
-            if (u.getEmail().equalsIgnoreCase(email)) {
-                return true;
-            }
-        }
-        return false;
+        return email != null && store.contains(email);
     }
 
+    // register, login and editUser hash passwords and take a while: UI code calls them through AuthService
     public boolean register(String email, String displayName, String password) {
         if (!isValidEmail(email)) return false; // Validate email format
         if (emailExists(email)) return false;
-        String salt = generateSalt();
-        String hashed = hashPassword(password, salt);
-        users.add(new User(email, displayName, hashed, salt));
-        saveAllUsers();
-        return true;
+        String salt = PasswordHasher.newSalt();
+        String hashed = PasswordHasher.hash(password, salt);
+        User user = new User(email, displayName, hashed, salt);
+        // Checked again under the file lock, in case another window registered the same email
+        return store.create(user);
     }
 
     public User login(String email, String password) {
         if (!isValidEmail(email)) return null; // Validate email format
-        for (User u : users) {
-            if (u.getEmail().equalsIgnoreCase(email)) {
-                String hashedInput = hashPassword(password, u.getSalt());
-                if (u.getPassword().equals(hashedInput)) {
-                    return u;
-                }
+        User u = store.get(email);
+        if (u == null) {
+            PasswordHasher.simulateCheck(password); // Same delay as a wrong password
+            return null;
+        }
+        if (!PasswordHasher.matches(password, u)) {
+            return null; // login failed
+        }
+
+        // Old SHA-256 or weaker PBKDF2 hash: re-hash now that we know the password
+        if (PasswordHasher.needsRehash(u)) {
+            String salt = PasswordHasher.newSalt();
+            if (store.rehash(u, PasswordHasher.hash(password, salt), salt)) {
+                System.out.println("Upgraded password hash for " + u.getEmail());
+                User upgraded = store.get(email);
+                return (upgraded != null) ? upgraded : u;
             }
         }
-        return null; // login failed
+        return u;
     }
 
     public boolean editUser(String email, String newDisplayName, String newPassword) {
-    for (int i = 0; i < users.size(); i++) {
-        User u = users.get(i);
-        if (u.getEmail().equalsIgnoreCase(email)) {
-
-            // Use existing values unless user updates them
-            String updatedName = (newDisplayName != null && !newDisplayName.isEmpty())
-                    ? newDisplayName
-                    : u.getDisplayName();
-
-            String updatedPass = u.getPassword();
-            String updatedSalt = u.getSalt();
-
-            // if new password is provided, hash and replace
-            if (newPassword != null && !newPassword.isEmpty()) {
-                updatedSalt = generateSalt();
-                updatedPass = hashPassword(newPassword, updatedSalt); // ✅ hash the new password before saving
-            } else {
-                updatedPass = u.getPassword(); // keep old hashed password
-            }
+        User u = (email == null) ? null : store.get(email);
+        if (u == null) {
+            return false; // user not found
+        }
+
+        // Use existing values unless user updates them
+        String updatedName = (newDisplayName != null && !newDisplayName.isEmpty())
+                ? newDisplayName
+                : u.getDisplayName();
 
-            // Update the user object
-            users.set(i, new User(email, updatedName, updatedPass, updatedSalt));
-            saveAllUsers(); // ✅ rewrite file with updated info
-            return true;
+        String updatedPass = u.getPassword();
+        String updatedSalt = u.getSalt();
+
+        // if new password is provided, hash and replace
+        if (newPassword != null && !newPassword.isEmpty()) {
+            updatedSalt = PasswordHasher.newSalt();
+            updatedPass = PasswordHasher.hash(newPassword, updatedSalt); // ✅ hash the new password before saving
         }
+
+        // Update the user object (same key, so its position in the file is kept)
+        User updated = new User(u.getEmail(), updatedName, updatedPass, updatedSalt);
+        store.put(updated); // ✅ record the updated info
+        return true;
     }
-    return false; // user not found
-}
 
 
     public boolean deleteUser(String email) {
-        Iterator<User> iterator = users.iterator();
-        while (iterator.hasNext()) {
-            User u = iterator.next();
-            if (u.getEmail().equalsIgnoreCase(email)) {
-                iterator.remove();
-                saveAllUsers(); // rewrite after deletion
-                return true;
-            }
-        }
-        return false;
+        return email != null && store.delete(email);
     }
 
     // Return a user by email (or null if not found)
     public User getUserByEmail(String email) {
-        for (User u : users) {
-            if (u.getEmail().equalsIgnoreCase(email)) {
-                return u;
-            }
-        }
-        return null;
+        return (email == null) ? null : store.get(email);
     }
 
 }
@@ -9,7 +9,7 @@ import java.nio.file.Paths;
 
 public class UserSession {
     private static UserSession instance;
-    private User currentUser;
+    private volatile User currentUser;
     
     // We will save a tiny text file called "session.token"
     // Using a hidden folder or user home directory is best practice, 
@@ -18,38 +18,54 @@ public class UserSession {
 
     private UserSession() {}
 
-    public static UserSession getInstance() {
+    public static synchronized UserSession getInstance() {
         if (instance == null) instance = new UserSession();
         return instance;
     }
 
     public User getCurrentUser() { return currentUser; }
 
-    // --- NEW: Save the User's Email to a file ---
+    // --- Save a signed token (email, name, expiry) to a file ---
     public void saveSession(User user) {
         this.currentUser = user;
+        UserLocations.applyTo(user); // Weather follows the user's location
         try (PrintWriter out = new PrintWriter(new FileWriter(SESSION_FILE))) {
-            // We only save the email. Never save plain-text passwords!
-            out.println(user.getEmail());
+            // Never save passwords; the token is signed so it cannot be edited by hand
+            out.println(SessionToken.issue(user));
             System.out.println("Session saved for: " + user.getEmail());
         } catch (IOException e) {
             System.out.println("Failed to save session: " + e.getMessage());
         }
     }
 
-    // --- NEW: Try to load the user from the file ---
-    public boolean restoreSession(UserManager userManager) {
+    // --- Try to load the user from the file, without reading UserData.txt ---
+    public boolean restoreSession() {
         File file = new File(SESSION_FILE);
         if (!file.exists()) return false;
 
         try {
-            String email = new String(Files.readAllBytes(Paths.get(SESSION_FILE))).trim();
-            
-            // We need to look up the full User object using the email
-            User user = userManager.getUserByEmail(email);
-            
-            if (user != null) {
+            String token = new String(Files.readAllBytes(Paths.get(SESSION_FILE))).trim();
+
+            // 1. Signed token: everything the first screen needs is in it
+            if (SessionToken.isSigned(token)) {
+                SessionToken.Claims claims = SessionToken.verify(token);
+                if (claims == null) {
+                    System.out.println("Session expired or invalid, please log in again.");
+                    file.delete();
+                    return false;
+                }
+                // Password fields stay empty until completeRestore() has the stored record
+                User user = new User(claims.email(), claims.displayName(), null, null);
                 this.currentUser = user;
+                UserLocations.applyTo(user);
+                System.out.println("Session restored for: " + user.getDisplayName());
+                return true;
+            }
+
+            // 2. Old token with only the email: look it up and re-save in the new format
+            User user = UserManager.getInstance().getUserByEmail(token);
+            if (user != null) {
+                saveSession(user);
                 System.out.println("Session restored for: " + user.getDisplayName());
                 return true;
             }
@@ -59,12 +75,35 @@ public class UserSession {
         return false;
     }
 
+    // --- Load the user store after the first screen and check the account still exists ---
+    public void completeRestore() {
+        UserManager userManager = UserManager.getInstance(); // Reads UserData.txt if nobody has yet
+        User restored = currentUser;
+        if (restored == null || restored.getPassword() != null) {
+            return; // Signed out, or already the stored record
+        }
+
+        User stored = userManager.getUserByEmail(restored.getEmail());
+        if (stored == null) {
+            // Deleted since the token was issued: keep this run, but ask for a login next time
+            System.out.println("Account no longer exists: " + restored.getEmail());
+            new File(SESSION_FILE).delete();
+            return;
+        }
+        synchronized (this) {
+            if (currentUser == restored) {
+                currentUser = stored;
+            }
+        }
+    }
+
     // --- NEW: Delete file on Logout ---
     public void logout() {
         this.currentUser = null;
+        UserLocations.applyTo(null);
         File file = new File(SESSION_FILE);
         if (file.exists()) {
             file.delete(); // Delete the token so next launch requires login
         }
     }
-}
\ No newline at end of file
+}
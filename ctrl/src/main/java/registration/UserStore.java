@@ -0,0 +1,604 @@
+package registration;
+/**
+ *
+ * @author chee
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import utils.EnvLoader;
+
+/**
+ * Log-structured storage for user accounts, shared by the whole app.
+ *
+ * UserData.txt is the snapshot, in the same four-lines-per-user format as
+ * before. Every change since the snapshot is one line in UserData.log:
+ *   PUT TAB email TAB displayName TAB passwordHash TAB salt
+ *   DEL TAB email
+ * Loading replays the log over the snapshot. Changes are written by one
+ * writer thread that fsyncs each batch once (group commit), so concurrent
+ * registrations share a disk flush. Once the log holds more than
+ * USER_LOG_COMPACT_RECORDS records (default 1000) a new snapshot is
+ * written in the background and the log is cut back.
+ *
+ * Several app instances may share the files. A writer holds an exclusive
+ * lock on UserData.lock while it catches up with the log and appends to
+ * it, so "email already taken" is decided against every instance's
+ * writes. Reads compare the files with what was loaded: a longer log is
+ * read from where the last read stopped, a replaced snapshot (another
+ * instance compacted) means a full reload. Within the process the map is
+ * guarded by a read-write lock.
+ */
+public class UserStore {
+
+    private static UserStore instance;
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Path lockFile;
+    private final long compactRecords;
+
+    // Current state (snapshot + log) by normalized email, and how much of the files it reflects
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LinkedHashMap<String, User> state = new LinkedHashMap<>();
+    private String snapshotStamp = "";
+    private long logOffset = 0;
+    private long logRecords = 0;
+
+    // Writer thread only
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private final List<Change> batch = new ArrayList<>();
+    private FileChannel lockChannel;
+    private boolean compacting = false;
+
+    private enum Kind { CREATE, PUT, REHASH, DELETE }
+
+    // For REHASH, user carries only the new hash and salt; the record written is built by the writer
+    private record Change(Kind kind, String key, User user, User expected, String line, CompletableFuture<Boolean> done) {
+    }
+
+    /**
+     * @return the store for UserData.txt, loaded on first use
+     */
+    public static synchronized UserStore getInstance() {
+        if (instance == null) {
+            instance = new UserStore(Paths.get(""),
+                    Math.max(16, EnvLoader.getLong("USER_LOG_COMPACT_RECORDS", 1000)));
+        }
+        return instance;
+    }
+
+    /**
+     * @param dir directory holding UserData.txt, UserData.log and UserData.lock
+     * @param compactRecords log records that trigger a compaction
+     */
+    UserStore(Path dir, long compactRecords) {
+        this.snapshotFile = dir.resolve("UserData.txt");
+        this.logFile = dir.resolve("UserData.log");
+        this.lockFile = dir.resolve("UserData.lock");
+        this.compactRecords = compactRecords;
+        try {
+            if (!Files.exists(snapshotFile)) {
+                Files.createFile(snapshotFile);
+            }
+            lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            System.out.println("Error opening user files: " + e.getMessage());
+        }
+        lock.writeLock().lock();
+        try {
+            reloadAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Thread writer = new Thread(this::writeLoop, "user-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // --- Reads ---
+
+    /**
+     * @param email any capitalization
+     * @return the user, or null if there is none
+     */
+    public User get(String email) {
+        refreshIfChanged();
+        lock.readLock().lock();
+        try {
+            return state.get(normalize(email));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param email any capitalization
+     * @return true if an account uses this email
+     */
+    public boolean contains(String email) {
+        return get(email) != null;
+    }
+
+    /**
+     * @return how many accounts there are
+     */
+    public int size() {
+        refreshIfChanged();
+        lock.readLock().lock();
+        try {
+            return state.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Writes (each waits until its record is on disk) ---
+
+    /**
+     * Adds a new user unless the email is taken, also by another app instance.
+     * @param user the new account
+     * @return false if the email already exists
+     */
+    public boolean create(User user) {
+        return submit(Kind.CREATE, user.getEmail(), user, null, putLine(user));
+    }
+
+    /**
+     * Adds or replaces a user.
+     * @param user the user's full record
+     */
+    public void put(User user) {
+        submit(Kind.PUT, user.getEmail(), user, null, putLine(user));
+    }
+
+    /**
+     * Swaps in a new hash and salt for the same password. It only applies if
+     * the stored password is still the one the caller read, so it cannot undo
+     * a password change made meanwhile. The rest of the record is taken from
+     * the store at write time, so a name edited meanwhile is kept.
+     * @param expected the record the new hash was computed from
+     * @param passwordHash the new hash
+     * @param salt the new salt
+     * @return false if the password was changed or the user removed in the meantime
+     */
+    public boolean rehash(User expected, String passwordHash, String salt) {
+        return submit(Kind.REHASH, expected.getEmail(), new User(expected.getEmail(), null, passwordHash, salt), expected, null);
+    }
+
+    /**
+     * Removes a user.
+     * @param email the user's email
+     * @return false if there was no such user
+     */
+    public boolean delete(String email) {
+        return submit(Kind.DELETE, email, null, null, join("DEL", email));
+    }
+
+    private boolean submit(Kind kind, String email, User user, User expected, String line) {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        Change change = new Change(kind, normalize(email), user, expected, line, done);
+        queue.add(() -> batch.add(change));
+        // A failed write is logged by the writer, like the old full-file save
+        return done.exceptionally(error -> false).join();
+    }
+
+    // --- Writer thread ---
+
+    private void writeLoop() {
+        while (true) {
+            try {
+                // 1. Everything queued so far becomes one batch
+                List<Runnable> tasks = new ArrayList<>();
+                tasks.add(queue.take());
+                queue.drainTo(tasks);
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch();
+                    batch.clear();
+                }
+
+                // 2. Start a compaction once the log is long enough
+                if (!compacting && logRecords > compactRecords) {
+                    startCompaction();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void writeBatch() {
+        List<Change> accepted = new ArrayList<>();
+        boolean[] results = new boolean[batch.size()];
+        long readTo;
+
+        try (FileLock fileLock = lockChannel.lock()) {
+            assert fileLock.isValid(); // Held for the whole block: other instances wait here
+            // 1. Catch up with other instances, then decide each change against the latest state
+            lock.writeLock().lock();
+            try {
+                refreshLocked();
+                readTo = logOffset;
+                LinkedHashMap<String, User> view = new LinkedHashMap<>(state);
+                for (int i = 0; i < batch.size(); i++) {
+                    Change c = batch.get(i);
+                    results[i] = switch (c.kind()) {
+                        case CREATE -> view.putIfAbsent(c.key(), c.user()) == null;
+                        case PUT -> {
+                            view.put(c.key(), c.user());
+                            yield true;
+                        }
+                        case REHASH -> {
+                            User current = view.get(c.key());
+                            if (current == null || !current.getPassword().equals(c.expected().getPassword())
+                                    || !Objects.equals(current.getSalt(), c.expected().getSalt())) {
+                                yield false;
+                            }
+                            User rehashed = new User(current.getEmail(), current.getDisplayName(),
+                                    c.user().getPassword(), c.user().getSalt());
+                            c = new Change(c.kind(), c.key(), rehashed, c.expected(), putLine(rehashed), c.done());
+                            view.put(c.key(), rehashed);
+                            yield true;
+                        }
+                        case DELETE -> view.remove(c.key()) != null;
+                    };
+                    if (results[i]) {
+                        accepted.add(c);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            // 2. One write and one fsync for the whole batch; readers are not blocked meanwhile.
+            // The log is opened per batch because another instance may have replaced it.
+            long end;
+            try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                // Anything past what we just read is a record a crashed writer left unfinished.
+                // Cut it off: ending it with a newline could turn a record torn inside its last
+                // field (a half-written salt) into one that parses. Safe only under the file lock.
+                if (log.size() > readTo) {
+                    log.truncate(readTo);
+                }
+                StringBuilder sb = new StringBuilder();
+                for (Change c : accepted) {
+                    sb.append(c.line()).append('\n');
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                end = log.size() + bytes.remaining();
+                while (bytes.hasRemaining()) {
+                    log.write(bytes);
+                }
+                log.force(false);
+            }
+
+            // 3. Apply in log order
+            lock.writeLock().lock();
+            try {
+                for (Change c : accepted) {
+                    if (c.kind() == Kind.DELETE) {
+                        state.remove(c.key());
+                    } else {
+                        state.put(c.key(), c.user());
+                    }
+                }
+                logOffset = end;
+                logRecords += accepted.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error saving users: " + e.getMessage());
+            for (Change c : batch) {
+                c.done().completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).done().complete(results[i]);
+        }
+    }
+
+    private void startCompaction() {
+        compacting = true;
+        List<User> users;
+        String stamp;
+        long cutOffset;
+        long cutRecords;
+        lock.readLock().lock();
+        try {
+            users = new ArrayList<>(state.values());
+            stamp = snapshotStamp;
+            cutOffset = logOffset;
+            cutRecords = logRecords;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // The snapshot is written off the writer thread; registrations keep appending meanwhile
+        Thread compactor = new Thread(() -> {
+            Path temp = writeSnapshot(users);
+            queue.add(() -> finishCompaction(temp, stamp, cutOffset, cutRecords));
+        }, "user-store-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    // Writer thread: install the snapshot and keep only the records appended after it was taken
+    private void finishCompaction(Path snapshot, String stamp, long cutOffset, long cutRecords) {
+        compacting = false;
+        if (snapshot == null) {
+            return;
+        }
+        Path tailTemp = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        try (FileLock fileLock = lockChannel.lock()) {
+            assert fileLock.isValid(); // Held for the whole block: other instances wait here
+            // Another instance compacted in the meantime: its files are newer than our snapshot
+            if (!stamp.equals(stampOf(snapshotFile)) || Files.size(logFile) < cutOffset) {
+                Files.deleteIfExists(snapshot);
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                refreshLocked();
+                try (FileChannel tail = FileChannel.open(logFile, StandardOpenOption.READ);
+                        FileChannel out = FileChannel.open(tailTemp, StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long size = tail.size();
+                    long position = cutOffset;
+                    while (position < size) {
+                        position += tail.transferTo(position, size - position, out);
+                    }
+                    out.force(false);
+                }
+                // A crash between the two moves replays the old log over the new snapshot, which is harmless
+                Files.move(snapshot, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(tailTemp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                snapshotStamp = stampOf(snapshotFile);
+                logOffset -= cutOffset;
+                logRecords -= cutRecords;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("Compacted user log (" + cutRecords + " records folded into UserData.txt)");
+        } catch (IOException e) {
+            System.out.println("Error compacting user log: " + e.getMessage());
+        }
+    }
+
+    // --- Keeping up with other instances ---
+
+    // Two stats per read; the map is only locked for writing if a file changed
+    private void refreshIfChanged() {
+        try {
+            String stamp = stampOf(snapshotFile);
+            long size = logSize();
+            lock.readLock().lock();
+            try {
+                if (stamp.equals(snapshotStamp) && size == logOffset) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (IOException e) {
+            return; // Serve what we have
+        }
+        lock.writeLock().lock();
+        try {
+            refreshLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Write lock held
+    private void refreshLocked() {
+        try {
+            if (!stampOf(snapshotFile).equals(snapshotStamp) || logSize() < logOffset) {
+                reloadAll();
+            } else {
+                readLogTail();
+            }
+        } catch (IOException e) {
+            System.out.println("Error reloading users: " + e.getMessage());
+        }
+    }
+
+    // Write lock held
+    private void reloadAll() {
+        state.clear();
+        logOffset = 0;
+        logRecords = 0;
+        try {
+            snapshotStamp = stampOf(snapshotFile);
+            readSnapshot();
+            readLogTail();
+        } catch (IOException e) {
+            System.out.println("Error loading users: " + e.getMessage());
+        }
+    }
+
+    // Write lock held: applies the complete records after logOffset
+    private void readLogTail() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size <= logOffset) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) (size - logOffset));
+            while (buffer.hasRemaining() && in.read(buffer, logOffset + buffer.position()) > 0) {
+                // keep reading until the buffer is full
+            }
+            byte[] bytes = buffer.array();
+
+            // Whole lines only; a record still being written is picked up next time
+            int end = buffer.position();
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            String text = new String(bytes, 0, end, StandardCharsets.UTF_8);
+            for (String line : text.split("\n")) {
+                String[] f = split(line);
+                if (f.length == 5 && f[0].equals("PUT")) {
+                    state.put(normalize(f[1]), new User(f[1], f[2], f[3], f[4]));
+                } else if (f.length == 2 && f[0].equals("DEL")) {
+                    state.remove(normalize(f[1]));
+                } else {
+                    continue; // Torn or unknown record (e.g. a crash mid-write)
+                }
+                logRecords++;
+            }
+            logOffset += end;
+        }
+    }
+
+    // No log yet (nothing written since the last snapshot) reads as empty
+    private long logSize() throws IOException {
+        return Files.exists(logFile) ? Files.size(logFile) : 0;
+    }
+
+    // Changes whenever the snapshot is replaced or rewritten
+    private static String stampOf(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return "";
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        return attrs.lastModifiedTime().toMillis() + ":" + attrs.size() + ":" + attrs.fileKey();
+    }
+
+    // --- Snapshot file ---
+
+    private Path writeSnapshot(List<User> users) {
+        try {
+            Path temp = Files.createTempFile(snapshotFile.toAbsolutePath().getParent(), "UserData", ".tmp");
+            try (BufferedWriter bw = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < users.size(); i++) {
+                    User u = users.get(i);
+                    bw.write(u.getEmail());
+                    bw.newLine();
+                    bw.write(u.getDisplayName());
+                    bw.newLine();
+                    bw.write(u.getPassword());
+                    bw.newLine();
+                    bw.write(u.getSalt());
+
+                    // Prevent adding an extra blank line after the last user
+                    if (i < users.size() - 1) {
+                        bw.newLine();
+                    }
+                }
+            }
+            try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ch.force(true);
+            }
+            return temp;
+        } catch (IOException e) {
+            System.out.println("Error writing user snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Write lock held
+    private void readSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (BufferedReader br = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+            String email, displayName, password;
+            while ((email = br.readLine()) != null) {
+                displayName = br.readLine();
+                password = br.readLine();
+                String salt = br.readLine();
+                // The first account wins if the file has the same email twice
+                state.putIfAbsent(normalize(email), new User(email, displayName, password, salt));
+            }
+        }
+    }
+
+    // --- Record format ---
+
+    private static String putLine(User user) {
+        return join("PUT", user.getEmail(), user.getDisplayName(), user.getPassword(), user.getSalt());
+    }
+
+    // Tabs, newlines and backslashes in values are escaped so one record stays one line
+    private static String join(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append('\t');
+            }
+            String value = (fields[i] == null) ? "" : fields[i];
+            for (int k = 0; k < value.length(); k++) {
+                char c = value.charAt(k);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '\t' -> sb.append("\\t");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    default -> sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
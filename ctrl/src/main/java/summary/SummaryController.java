@@ -4,11 +4,8 @@ package summary;
  * @author ekitstrap
  * @author mingdao
  */
-import java.io.IOException;
 import javafx.application.Platform; // Added for runLater
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.input.KeyCode; // Added for KeyCode
@@ -16,18 +13,21 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
-import javafx.stage.Stage;
 import javafx.event.ActionEvent;
+import journalpage.JournalService;
+import journalpage.JournalSyncWorker;
+import journalpage.journalApp;
 import registration.UserSession;
 import summary.SummaryPage.SummaryData;
-import landingpage.LandingPageController;
+import utils.SceneNavigator;
+import utils.ScreenLifecycle;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 
-public class SummaryController {
+public class SummaryController implements ScreenLifecycle {
 
     @FXML private Label dateRangeLabel;
     
@@ -40,8 +40,9 @@ public class SummaryController {
     @FXML private Label weatherSummaryLabel;
     @FXML private Label aiQuoteLabel;
 
-    @FXML
-    public void initialize() {
+    // Runs on every visit, since the screen is cached by SceneNavigator
+    @Override
+    public void onShow() {
         try {
             // Get current user email
             String userEmail = "guest@local"; 
@@ -59,21 +60,18 @@ public class SummaryController {
             loadSummaryData(userEmail);
 
             // ---------------------------------------------------------
-            // NEW: Escape Key Handler
+            // NEW: Escape Key Handler (the Scene is shared by all screens)
             // ---------------------------------------------------------
-            Platform.runLater(() -> {
-                // We can use any node to get the scene, timelineContainer is a safe bet
-                Scene scene = timelineContainer.getScene();
-                if (scene != null) {
-                    scene.setOnKeyPressed(event -> {
-                        if (event.getCode() == KeyCode.ESCAPE) {
-                            returnToLandingPage();
-                        }
-                    });
-                    // Ensure the scene has focus so it catches the key event
-                    timelineContainer.requestFocus();
-                }
-            });
+            Scene scene = timelineContainer.getScene();
+            if (scene != null) {
+                scene.setOnKeyPressed(event -> {
+                    if (event.getCode() == KeyCode.ESCAPE) {
+                        returnToLandingPage();
+                    }
+                });
+                // Ensure the scene has focus so it catches the key event
+                timelineContainer.requestFocus();
+            }
 
         } catch (Exception e) {
             System.err.println("Error initializing summary: " + e.getMessage());
@@ -82,35 +80,44 @@ public class SummaryController {
 
     // --- NAVIGATION HELPER (NEW) ---
     private void returnToLandingPage() {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/LandingPage.fxml"));
-            Parent root = loader.load();
-            
-            // Get stage from any UI element
-            Stage stage = (Stage) timelineContainer.getScene().getWindow();
-            
-            LandingPageController controller = loader.getController();
-            if (UserSession.getInstance().getCurrentUser() != null) {
-                controller.setUserName(UserSession.getInstance().getCurrentUser().getDisplayName());
-            }
-            
-            stage.setScene(new Scene(root));
-            stage.setFullScreenExitHint("");
-            stage.setFullScreen(true);
-            
-        } catch (IOException e) {
-            System.err.println("Error loading Landing Page.");
-        }
+        SceneNavigator.show(SceneNavigator.Screen.LANDING);
     }
 
     private void loadSummaryData(String userEmail) {
-        // 1. Fetch Aggregates for Right Panel
-        SummaryData summaryData = SummaryPage.getWeeklySummaryData(userEmail);
-        updateInsightsPanel(summaryData);
+        showLoadingState();
+
+        // One aggregation returns both the aggregates and the raw entries (off the FX thread)
+        JournalService.submit(() -> {
+                    // Push entries saved locally first so they are part of the aggregation
+                    try {
+                        JournalSyncWorker.syncNow(journalApp.getLocalStore());
+                    } catch (RuntimeException e) {
+                        System.err.println("Summary may miss unsynced entries: " + e.getMessage());
+                    }
+                    return SummaryPage.getWeeklySummary(userEmail);
+                })
+                .whenCompleteAsync((report, error) -> {
+                    if (error != null) {
+                        System.err.println("Error loading summary: " + error.getMessage());
+                        dominantMoodLabel.setText("Offline");
+                        dominantMoodSubtext.setText("Could not load this week's entries.");
+                        return;
+                    }
+
+                    // 1. Aggregates for Right Panel
+                    updateInsightsPanel(report.getSummaryData());
+
+                    // 2. Raw Entries for Left Panel
+                    populateTimeline(report.getEntries());
+                }, Platform::runLater);
+    }
 
-        // 2. Fetch Raw Entries for Left Panel
-        List<String[]> entries = SummaryPage.getWeeklyJournalEntries(userEmail);
-        populateTimeline(entries);
+    private void showLoadingState() {
+        timelineContainer.getChildren().clear();
+        dominantMoodLabel.setText("Loading...");
+        dominantMoodSubtext.setText("Gathering your week");
+        weatherSummaryLabel.setText("--");
+        aiQuoteLabel.setText("");
     }
 
     private void updateInsightsPanel(SummaryData data) {
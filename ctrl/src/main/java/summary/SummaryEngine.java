@@ -0,0 +1,124 @@
+package summary;
+/**
+ *
+ * @author mingdao
+ */
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import journalpage.journalApp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import summary.SummaryPage.SummaryData;
+import utils.MongoDBConnection;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds summaries for any date range with a single aggregation pipeline.
+ * The mood and weather histograms and the entry rows all come back from one
+ * $facet stage, so the Summary screen costs one round trip instead of one
+ * query per day.
+ */
+public class SummaryEngine {
+
+    /**
+     * Summarises the entries of one user between two dates (both inclusive).
+     *
+     * @param email the user whose entries are summarised
+     * @param from  first day of the range
+     * @param to    last day of the range
+     * @return the histograms plus the entry rows, newest first
+     */
+    public static SummaryReport getSummary(String email, LocalDate from, LocalDate to) {
+        MongoCollection<Document> coll = MongoDBConnection.getDatabase().getCollection("journals");
+
+        // 1. Only this user's entries inside the range (index scan on email + epochDay)
+        Bson match = Aggregates.match(journalApp.dateRangeFilter(email, from, to));
+
+        // 2. Same defaults as SummaryPage.getEntryForDate, but computed on the server
+        Document normalize = new Document("$project", new Document("_id", 0)
+                .append("date", 1)
+                .append("email", 1)
+                .append("entry", new Document("$ifNull", Arrays.asList("$entry", "")))
+                .append("weather", orUnknown("$weather"))
+                .append("mood", orUnknown("$mood")));
+
+        // 3. Histograms and rows in one pass
+        Document facet = new Document("$facet", new Document()
+                .append("moods", Arrays.asList(countBy("$mood")))
+                .append("weather", Arrays.asList(countBy("$weather")))
+                .append("entries", Arrays.asList(new Document("$sort", new Document("date", -1)))));
+
+        Document result = coll.aggregate(Arrays.asList(match, normalize, facet)).first();
+        if (result == null) {
+            return new SummaryReport(new SummaryData(new HashMap<>(), new HashMap<>(), 0), new ArrayList<>());
+        }
+
+        Map<String, Integer> moodCounts = toCounts(result.getList("moods", Document.class));
+        Map<String, Integer> weatherCounts = toCounts(result.getList("weather", Document.class));
+
+        // Keep the same positions used by existing code: [0]=date, [1]=email, [2]=title, [3]=weather, [4]=mood
+        List<String[]> rows = new ArrayList<>();
+        for (Document doc : result.getList("entries", Document.class)) {
+            rows.add(new String[] {
+                doc.getString("date"),
+                doc.getString("email"),
+                doc.getString("entry"),
+                doc.getString("weather"),
+                doc.getString("mood")
+            });
+        }
+
+        return new SummaryReport(new SummaryData(moodCounts, weatherCounts, rows.size()), rows);
+    }
+
+    // Replaces missing, non-string or blank values with "Unknown"
+    private static Document orUnknown(String field) {
+        Document trimmed = new Document("$trim", new Document("input",
+                new Document("$cond", Arrays.asList(
+                        new Document("$eq", Arrays.asList(new Document("$type", field), "string")),
+                        field,
+                        ""))));
+        return new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList(trimmed, "")),
+                "Unknown",
+                field));
+    }
+
+    private static Document countBy(String field) {
+        return new Document("$group", new Document("_id", field)
+                .append("count", new Document("$sum", 1)));
+    }
+
+    private static Map<String, Integer> toCounts(List<Document> groups) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Document group : groups) {
+            counts.put(group.getString("_id"), group.getInteger("count"));
+        }
+        return counts;
+    }
+
+    // Data class holding the aggregates and the rows of one summary
+    public static class SummaryReport {
+        private final SummaryData summaryData;
+        private final List<String[]> entries;
+
+        public SummaryReport(SummaryData summaryData, List<String[]> entries) {
+            this.summaryData = summaryData;
+            this.entries = entries;
+        }
+
+        public SummaryData getSummaryData() {
+            return summaryData;
+        }
+
+        public List<String[]> getEntries() {
+            return entries;
+        }
+    }
+}
@@ -6,16 +6,17 @@ package summary;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import org.bson.Document;
+import utils.Metrics;
 import utils.MongoDBConnection;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class SummaryPage {
 
+    private static final Metrics.Histogram WEEKLY_TIME = Metrics.histogram("summary.weekly");
+
     // 1. The Main Method to Show the Summary
     public static void displayWeeklySummary(String currentUserEmail) {
         System.out.println("\n==========================================");
@@ -82,52 +83,24 @@ public class SummaryPage {
     
     // This fetches the actual list of entries for the UI to display in the scroll pane
     public static List<String[]> getWeeklyJournalEntries(String currentUserEmail) {
-        List<String[]> entriesList = new ArrayList<>();
-        LocalDate today = LocalDate.now();
-
-        // Loop from today backwards for 7 days
-        for (int i = 0; i < 7; i++) {
-            LocalDate targetDate = today.minusDays(i);
-            String dateString = targetDate.toString();
-
-            String[] entry = getEntryForDate(currentUserEmail, dateString);
-            
-            // If an entry exists for this date, add it. 
-            // If not, we can optionally add a placeholder or skip it.
-            // Here we skip it to only show days user journaled.
-            if (entry != null) {
-                entriesList.add(entry);
-            }
-        }
-        return entriesList;
+        // Newest first; only days the user journaled are returned
+        return getWeeklySummary(currentUserEmail).getEntries();
     }
     
     // Helper method to get summary data for GUI
     public static SummaryData getWeeklySummaryData(String currentUserEmail) {
-        Map<String, Integer> moodCounts = new HashMap<>();
-        Map<String, Integer> weatherCounts = new HashMap<>();
-        int totalEntries = 0;
+        return getWeeklySummary(currentUserEmail).getSummaryData();
+    }
 
+    // Past 7 days (6 days ago -> Today) in a single aggregation
+    public static SummaryEngine.SummaryReport getWeeklySummary(String currentUserEmail) {
+        long start = System.nanoTime();
         LocalDate today = LocalDate.now();
-
-        // Loop through the past 7 days (6 days ago -> Today)
-        for (int i = 6; i >= 0; i--) {
-            LocalDate targetDate = today.minusDays(i);
-            String dateString = targetDate.toString();
-
-            String[] entry = getEntryForDate(currentUserEmail, dateString);
-
-            if (entry != null) {
-                totalEntries++;
-                String weather = entry[3];
-                String mood = entry[4];
-
-                moodCounts.put(mood, moodCounts.getOrDefault(mood, 0) + 1);
-                weatherCounts.put(weather, weatherCounts.getOrDefault(weather, 0) + 1);
-            }
+        try {
+            return SummaryEngine.getSummary(currentUserEmail, today.minusDays(6), today);
+        } finally {
+            WEEKLY_TIME.recordSince(start);
         }
-
-        return new SummaryData(moodCounts, weatherCounts, totalEntries);
     }
     
     // Data class to hold summary information
@@ -106,4 +106,41 @@ public class EnvLoader {
         
         return env;
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a setting from the .env file, falling back to the system
+     * environment and then to the given default.
+     *
+     * @param key the variable name
+     * @param defaultValue value used when the variable is not set
+     * @return the configured value or the default
+     */
+    public static String get(String key, String defaultValue) {
+        String value = loadEnv().get(key);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(key);
+        }
+        return (value == null || value.isEmpty()) ? defaultValue : value;
+    }
+
+    /**
+     * Reads a numeric setting, see {@link #get(String, String)}.
+     * Values that are not valid numbers fall back to the default.
+     *
+     * @param key the variable name
+     * @param defaultValue value used when the variable is missing or invalid
+     * @return the configured number or the default
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
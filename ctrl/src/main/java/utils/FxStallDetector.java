@@ -0,0 +1,219 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+
+/**
+ * Watchdog for the JavaFX application thread.
+ *
+ * A background thread keeps one heartbeat queued with Platform.runLater.
+ * If the heartbeat has not run after FX_STALL_THRESHOLD_MS (default 200;
+ * 0 turns the detector off), the FX thread is busy with something else and
+ * its stack is sampled. When the heartbeat finally runs, the stall is
+ * recorded under its call site: the first frame of the sampled stack that
+ * belongs to the app rather than to the JDK, JavaFX or a driver.
+ *
+ * Stalls are logged as they end, counted in Metrics ("fx.stall") and
+ * summarized per call site, worst first, in cache/fx-stalls.txt. The file
+ * is rewritten every minute while new stalls come in, and at exit. It is
+ * meant to be attached to bug reports.
+ */
+public class FxStallDetector {
+
+    private static final long THRESHOLD_MS = EnvLoader.getLong("FX_STALL_THRESHOLD_MS", 200);
+    private static final Path REPORT_FILE = Paths.get("cache", "fx-stalls.txt");
+    private static final int MAX_STACK_LINES = 40;
+
+    // Frames from these packages are never blamed; the app code that called them is
+    private static final String[] LIBRARY_PREFIXES = {
+        "java.", "javax.", "javafx.", "jdk.", "sun.", "com.sun.", "com.mongodb.", "org.bson.", "utils.FxStallDetector"
+    };
+
+    private static final Metrics.Histogram STALL_TIME = Metrics.histogram("fx.stall");
+
+    private static Thread fxThread;
+
+    // Guarded by FxStallDetector.class
+    private static long postedAt = 0;                     // nanoTime the pending heartbeat was queued, 0 if none
+    private static StackTraceElement[] stallStack = null; // sampled once the pending heartbeat is late
+    private static final Map<String, Site> sites = new LinkedHashMap<>();
+    private static boolean dirty = false;
+
+    // All stalls blamed on one call site
+    private static final class Site {
+        long count;
+        long totalMs;
+        long maxMs;
+        StackTraceElement[] worstStack;
+    }
+
+    /**
+     * Starts watching the current thread, which must be the FX thread. Safe
+     * to call more than once.
+     */
+    public static synchronized void install() {
+        if (THRESHOLD_MS <= 0 || fxThread != null) {
+            return;
+        }
+        fxThread = Thread.currentThread();
+
+        // Several samples per threshold, so a stall just over it is still caught
+        long period = Math.max(10, THRESHOLD_MS / 4);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "fx-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(FxStallDetector::tick, period, period, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(FxStallDetector::writeReportIfChanged, 1, 1, TimeUnit.MINUTES);
+        Runtime.getRuntime().addShutdownHook(new Thread(FxStallDetector::writeReportIfChanged, "fx-stalls-report"));
+        System.out.println("FX stall detector on (threshold " + THRESHOLD_MS + " ms)");
+    }
+
+    // Watchdog thread
+    private static void tick() {
+        boolean post;
+        synchronized (FxStallDetector.class) {
+            long now = System.nanoTime();
+            post = (postedAt == 0);
+            if (post) {
+                postedAt = now;
+            } else if (stallStack == null && (now - postedAt) / 1_000_000 >= THRESHOLD_MS) {
+                // 1. Late: see what the FX thread is doing right now
+                stallStack = fxThread.getStackTrace();
+            }
+        }
+        if (post) {
+            Platform.runLater(FxStallDetector::beat);
+        }
+    }
+
+    // FX thread: the heartbeat got through
+    private static void beat() {
+        long stalledMs;
+        String site;
+        synchronized (FxStallDetector.class) {
+            stalledMs = (System.nanoTime() - postedAt) / 1_000_000;
+            StackTraceElement[] stack = stallStack;
+            postedAt = 0;
+            stallStack = null;
+            if (stalledMs < THRESHOLD_MS) {
+                return;
+            }
+
+            // 2. Blame the app frame the FX thread was in
+            site = (stack == null) ? "(not sampled)" : callSiteOf(stack);
+            Site s = sites.computeIfAbsent(site, k -> new Site());
+            s.count++;
+            s.totalMs += stalledMs;
+            if (stalledMs >= s.maxMs) {
+                s.maxMs = stalledMs;
+                s.worstStack = stack;
+            }
+            dirty = true;
+        }
+        STALL_TIME.recordNanos(stalledMs * 1_000_000);
+        System.err.println("FX thread stalled " + stalledMs + " ms at " + site);
+    }
+
+    private static String callSiteOf(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (!isLibrary(frame.getClassName())) {
+                return frame.getClassName() + "." + frame.getMethodName()
+                        + "(" + frame.getFileName() + ":" + frame.getLineNumber() + ")";
+            }
+        }
+        return "(JavaFX internals, e.g. layout or CSS)";
+    }
+
+    private static boolean isLibrary(String className) {
+        for (String prefix : LIBRARY_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the stalls so far, one block per call site, by total time blocked
+     */
+    public static synchronized String getReport() {
+        List<Map.Entry<String, Site>> ranked = new ArrayList<>(sites.entrySet());
+        ranked.sort((a, b) -> Long.compare(b.getValue().totalMs, a.getValue().totalMs));
+
+        long count = 0;
+        long totalMs = 0;
+        for (Site s : sites.values()) {
+            count += s.count;
+            totalMs += s.totalMs;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("FX thread stalls over ").append(THRESHOLD_MS).append(" ms, written ").append(LocalDateTime.now()).append('\n');
+        sb.append("Total: ").append(count).append(" stalls, ").append(totalMs).append(" ms blocked\n");
+        int rank = 1;
+        for (Map.Entry<String, Site> e : ranked) {
+            Site s = e.getValue();
+            sb.append('\n').append('#').append(rank++).append(' ').append(e.getKey()).append('\n');
+            sb.append("   ").append(s.count).append(" stalls, total ").append(s.totalMs)
+                    .append(" ms, max ").append(s.maxMs).append(" ms\n");
+            if (s.worstStack != null) {
+                sb.append("   stack of the longest:\n");
+                int lines = Math.min(s.worstStack.length, MAX_STACK_LINES);
+                for (int i = 0; i < lines; i++) {
+                    sb.append("     at ").append(s.worstStack[i]).append('\n');
+                }
+                if (s.worstStack.length > lines) {
+                    sb.append("     ... ").append(s.worstStack.length - lines).append(" more\n");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes {@link #getReport()} to cache/fx-stalls.txt.
+     */
+    public static void writeReport() {
+        String report;
+        synchronized (FxStallDetector.class) {
+            report = getReport();
+            dirty = false;
+        }
+        try {
+            Files.createDirectories(REPORT_FILE.getParent());
+            Path temp = REPORT_FILE.resolveSibling("fx-stalls.txt.tmp");
+            Files.writeString(temp, report, StandardCharsets.UTF_8);
+            Files.move(temp, REPORT_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write FX stall report: " + e.getMessage());
+        }
+    }
+
+    private static void writeReportIfChanged() {
+        boolean changed;
+        synchronized (FxStallDetector.class) {
+            changed = dirty;
+        }
+        if (changed) {
+            writeReport();
+        }
+    }
+}
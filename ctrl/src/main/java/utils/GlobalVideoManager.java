@@ -4,69 +4,305 @@ package utils;
  * @author ekitstrap
  */
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.animation.FadeTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.scene.media.MediaView;
+import javafx.util.Duration;
 
+/**
+ * Shared weather background for every screen.
+ *
+ * One player per video is kept ready (preloaded at startup), so switching
+ * weather never rebuilds a Media. Two MediaViews sit on top of each other
+ * in a shared layer and the new video fades in over the old one; the
+ * player that is no longer visible is paused so its decoder stays idle.
+ * VideoPowerGovernor can suspend playback altogether; a still poster of
+ * the video is shown meanwhile.
+ */
 public class GlobalVideoManager {
 
-    private static MediaPlayer mediaPlayer;
-    private static MediaView mediaView;
+    private static final String[] VIDEO_FILES = {"clear.mp4", "rain.mp4", "cloudy.mp4"};
+    private static final Duration CROSSFADE = Duration.millis(800);
+
+    private static final Map<String, MediaPlayer> players = new ConcurrentHashMap<>();
+
+    // FX thread only from here on
+    private static StackPane videoLayer;
+    private static MediaView frontView;
+    private static MediaView backView;
+    private static ImageView posterView;
+    private static final Map<String, Image> posters = new HashMap<>();
+    private static boolean suspended = false;
+    private static double playbackRate = 1.0;
+    private static FadeTransition crossfade;
     private static String currentVideoFile = "";
+    private static boolean followingWeather = false;
+
+    /**
+     * Creates the players for all weather videos on a background thread so
+     * the first switch to any of them is instant. Safe to call more than once.
+     */
+    public static void preload() {
+        Thread t = new Thread(GlobalVideoManager::preloadAll, "video-preload");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Same as {@link #preload()}, but on the calling thread.
+     */
+    public static void preloadAll() {
+        for (String videoFile : VIDEO_FILES) {
+            try {
+                playerFor(videoFile);
+            } catch (Exception e) {
+                System.err.println("Error preloading video: " + videoFile);
+            }
+        }
+    }
+
+    /**
+     * Swaps the background whenever WeatherService reports a change in
+     * today's weather, even while a screen is already showing.
+     */
+    public static synchronized void followWeather() {
+        if (followingWeather) {
+            return;
+        }
+        followingWeather = true;
+        WeatherService.addListener(weather -> {
+            String videoFile = WeatherBackgroundManager.getVideoFileForWeather(weather);
+            Platform.runLater(() -> updateWeatherVideo(videoFile));
+        });
+    }
 
     /**
-     * Prepares the video based on the weather.
+     * Shows the video for the weather, crossfading from the current one.
      * If the requested video is ALREADY playing, it does nothing (Zero Lag).
-     * @param videoFileName
+     * Must be called on the FX thread.
+     * @param videoFileName e.g. "rain.mp4"
      */
     public static void updateWeatherVideo(String videoFileName) {
-        // Optimization: If the correct video is already playing, don't reload it!
-        if (mediaPlayer != null && currentVideoFile.equals(videoFileName)) {
-            return; 
+        if (currentVideoFile.equals(videoFileName)) {
+            return;
         }
 
+        MediaPlayer next;
         try {
-            // 1. Dispose previous player to free memory
-            if (mediaPlayer != null) {
-                mediaPlayer.dispose();
+            next = playerFor(videoFileName);
+        } catch (Exception e) {
+            System.err.println("Error loading video: " + videoFileName);
+            return;
+        }
+        ensureLayer();
+
+        // 1. Finish a crossfade that is still running
+        if (crossfade != null) {
+            crossfade.stop();
+            finishCrossfade();
+        }
+
+        // 2. Put the new player in the hidden view, on top, fully transparent
+        MediaView incoming = backView;
+        incoming.setMediaPlayer(next);
+        incoming.setOpacity(0);
+        incoming.toFront();
+        posterView.toFront();
+
+        backView = frontView;
+        frontView = incoming;
+        currentVideoFile = videoFileName;
+
+        // While suspended, just switch the poster; the player starts on resume
+        if (suspended) {
+            finishCrossfade();
+            showPoster(posters.get(videoFileName));
+            return;
+        }
+
+        // 3. Fade it in; the old player is paused once it is covered
+        next.setRate(playbackRate);
+        next.play();
+        crossfade = new FadeTransition(CROSSFADE, incoming);
+        crossfade.setFromValue(0);
+        crossfade.setToValue(1);
+        crossfade.setOnFinished(event -> finishCrossfade());
+        crossfade.play();
+    }
+
+    /**
+     * Moves the shared video layer into a screen's container, behind its UI.
+     * @param container the screen's video container
+     * @param sizeSource the node whose size the video should fill
+     */
+    public static void attachTo(Pane container, Region sizeSource) {
+        if (container == null) {
+            return;
+        }
+        ensureLayer();
+
+        // JavaFX requires a node to be removed from its old parent before adding to a new one
+        if (videoLayer.getParent() instanceof Pane oldParent) {
+            oldParent.getChildren().remove(videoLayer);
+        }
+        container.getChildren().setAll(videoLayer);
+
+        // Bind Size (Responsive Background)
+        for (MediaView view : new MediaView[]{frontView, backView}) {
+            view.fitWidthProperty().bind(sizeSource.widthProperty());
+            view.fitHeightProperty().bind(sizeSource.heightProperty());
+        }
+        posterView.fitWidthProperty().bind(sizeSource.widthProperty());
+        posterView.fitHeightProperty().bind(sizeSource.heightProperty());
+        videoLayer.toBack();
+    }
+
+    // --- Used by VideoPowerGovernor (FX thread) ---
+
+    /**
+     * Pauses the visible player and shows a still poster in its place.
+     */
+    static void suspend() {
+        if (suspended) {
+            return;
+        }
+        suspended = true;
+        if (crossfade != null) {
+            crossfade.stop();
+            finishCrossfade();
+        }
+
+        MediaPlayer player = (frontView == null) ? null : frontView.getMediaPlayer();
+        if (player == null) {
+            return;
+        }
+        // One poster per video is enough; later pauses reuse it
+        Image poster = posters.get(currentVideoFile);
+        if (poster == null && videoLayer.getWidth() > 0 && player.getStatus() == MediaPlayer.Status.PLAYING) {
+            poster = frontView.snapshot(null, null);
+            posters.put(currentVideoFile, poster);
+        }
+        showPoster(poster);
+        player.pause();
+    }
+
+    /**
+     * Resumes the visible player.
+     * @param rate playback rate; below 1.0 fewer frames are decoded per second
+     */
+    static void resume(double rate) {
+        playbackRate = rate;
+        MediaPlayer player = (frontView == null) ? null : frontView.getMediaPlayer();
+        if (player != null) {
+            player.setRate(rate);
+            if (suspended) {
+                player.play();
             }
+        }
+        suspended = false;
+        showPoster(null);
+    }
 
-            // 2. Load new video
-            String path = GlobalVideoManager.class.getResource("/assets/" + videoFileName).toExternalForm();
-            Media media = new Media(path);
-            
-            mediaPlayer = new MediaPlayer(media);
-            mediaPlayer.setCycleCount(MediaPlayer.INDEFINITE);
-            mediaPlayer.setMute(true);
-            mediaPlayer.setAutoPlay(true);
-
-            // 3. Create or Update View
-            if (mediaView == null) {
-                mediaView = new MediaView(mediaPlayer);
-            } else {
-                mediaView.setMediaPlayer(mediaPlayer);
+    /**
+     * Disposes the players that are not on screen; they are created again on demand.
+     * @return how many players were released
+     */
+    static int releaseHiddenPlayers() {
+        MediaPlayer visible = (frontView == null) ? null : frontView.getMediaPlayer();
+        if (backView != null && backView.getMediaPlayer() != visible) {
+            backView.setMediaPlayer(null);
+        }
+        int released = 0;
+        Iterator<MediaPlayer> it = players.values().iterator();
+        while (it.hasNext()) {
+            MediaPlayer player = it.next();
+            if (player != visible) {
+                player.dispose();
+                it.remove();
+                released++;
             }
-            
-            currentVideoFile = videoFileName;
+        }
+        return released;
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error loading video: " + videoFileName);
+    /**
+     * @param scene the scene the stage is showing
+     * @return true if the video layer is part of that scene
+     */
+    static boolean isShowingIn(Scene scene) {
+        return videoLayer != null && scene != null && videoLayer.getScene() == scene;
+    }
+
+    static ReadOnlyObjectProperty<Scene> layerSceneProperty() {
+        ensureLayer();
+        return videoLayer.sceneProperty();
+    }
+
+    private static void showPoster(Image poster) {
+        if (posterView == null) {
+            return;
         }
+        posterView.setImage(poster);
+        posterView.setVisible(poster != null);
     }
 
     /**
-     * Returns the shared MediaView.
-     * It automatically removes itself from any previous screen to prevent "Duplicate Node" errors.
-     * @return 
+     * @return the video file currently shown, or "" before the first update
      */
-    public static MediaView getSharedMediaView() {
-        if (mediaView == null) return null;
+    public static String getCurrentVideoFile() {
+        return currentVideoFile;
+    }
 
-        // JavaFX requires a node to be removed from its old parent before adding to a new one
-        if (mediaView.getParent() != null) {
-            ((Pane) mediaView.getParent()).getChildren().remove(mediaView);
+    private static void finishCrossfade() {
+        crossfade = null;
+        frontView.setOpacity(1);
+
+        MediaPlayer hidden = backView.getMediaPlayer();
+        if (hidden != null && hidden != frontView.getMediaPlayer()) {
+            hidden.pause();
+        }
+        backView.setOpacity(0);
+    }
+
+    private static void ensureLayer() {
+        if (videoLayer != null) {
+            return;
         }
-        return mediaView;
+        frontView = newView();
+        backView = newView();
+        posterView = new ImageView();
+        posterView.setVisible(false);
+        videoLayer = new StackPane(backView, frontView, posterView);
+        videoLayer.setMouseTransparent(true);
+    }
+
+    private static MediaView newView() {
+        MediaView view = new MediaView();
+        view.setPreserveRatio(false);
+        view.setOpacity(0);
+        return view;
+    }
+
+    private static MediaPlayer playerFor(String videoFileName) {
+        return players.computeIfAbsent(videoFileName, file -> {
+            String path = GlobalVideoManager.class.getResource("/assets/" + file).toExternalForm();
+            MediaPlayer player = new MediaPlayer(new Media(path));
+            player.setCycleCount(MediaPlayer.INDEFINITE);
+            player.setMute(true);
+            return player;
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP layer for the weather and mood APIs.
+ *
+ * One java.net.http.HttpClient is reused for every call, so connections
+ * (and their TLS sessions) stay alive between requests and HTTP/2 streams
+ * can be multiplexed over one connection. Responses are requested gzipped
+ * and read as whole byte arrays instead of line by line. The client fills
+ * the array as data arrives, so the async variants never block one of its
+ * threads on a read.
+ */
+public class HttpService {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(15);
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)           // Falls back to HTTP/1.1 if the server can't
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    /**
+     * Sends a GET request and returns the body.
+     *
+     * @param url the URL to request
+     * @param timeout how long to wait for the response
+     * @return the response body as a String
+     * @throws IOException if the request fails or the status is not 200
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public static String get(String url, Duration timeout) throws IOException, InterruptedException {
+        return bodyOf(client.send(getRequest(url, timeout), HttpResponse.BodyHandlers.ofByteArray()), "GET");
+    }
+
+    /**
+     * Asynchronous version of {@link #get(String, Duration)}; no thread waits for the response.
+     *
+     * @param url the URL to request
+     * @param timeout how long to wait for the response
+     * @return future completed with the body
+     */
+    public static CompletableFuture<String> getAsync(String url, Duration timeout) {
+        return client.sendAsync(getRequest(url, timeout), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> uncheckedBodyOf(response, "GET"));
+    }
+
+    /**
+     * Sends a POST request with a JSON body and Bearer token authentication.
+     *
+     * @param url the URL to send the POST request to
+     * @param bearerToken the bearer token for Authorization header
+     * @param jsonBody the JSON payload as a string
+     * @param timeout how long to wait for the response
+     * @return the response body as a String
+     * @throws IOException if the request fails or the status is not 200/201
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public static String post(String url, String bearerToken, String jsonBody, Duration timeout)
+            throws IOException, InterruptedException {
+        return bodyOf(client.send(postRequest(url, bearerToken, jsonBody, timeout),
+                HttpResponse.BodyHandlers.ofByteArray()), "POST");
+    }
+
+    /**
+     * Asynchronous version of {@link #post(String, String, String, Duration)}.
+     *
+     * @param url the URL to send the POST request to
+     * @param bearerToken the bearer token for Authorization header
+     * @param jsonBody the JSON payload as a string
+     * @param timeout how long to wait for the response
+     * @return future completed with the body
+     */
+    public static CompletableFuture<String> postAsync(String url, String bearerToken, String jsonBody, Duration timeout) {
+        return client.sendAsync(postRequest(url, bearerToken, jsonBody, timeout), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> uncheckedBodyOf(response, "POST"));
+    }
+
+    private static HttpRequest getRequest(String url, Duration timeout) {
+        return baseRequest(url, timeout).GET().build();
+    }
+
+    private static HttpRequest postRequest(String url, String bearerToken, String jsonBody, Duration timeout) {
+        return baseRequest(url, timeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + bearerToken)
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static HttpRequest.Builder baseRequest(String url, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip");
+    }
+
+    private static String bodyOf(HttpResponse<byte[]> response, String method) throws IOException {
+        // Check for success (the body has already been drained, so the connection can be reused)
+        int status = response.statusCode();
+        if (status != 200 && !(method.equals("POST") && status == 201)) {
+            throw new IOException(method + " failed. HTTP error code: " + status);
+        }
+
+        byte[] raw = response.body();
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(enc -> enc.equalsIgnoreCase("gzip")).orElse(false);
+        if (!gzipped) {
+            return new String(raw, StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(raw))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String uncheckedBodyOf(HttpResponse<byte[]> response, String method) {
+        try {
+            return bodyOf(response, method);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * In-process counters, gauges and latency histograms.
+ *
+ * Call sites keep their metric in a static field and record into it, e.g.
+ *   private static final Metrics.Histogram SAVE = Metrics.histogram("journal.save");
+ *   long start = System.nanoTime(); ... SAVE.recordSince(start);
+ * Recording never allocates: counters are LongAdders and histograms are a
+ * fixed array of log-scaled buckets (8 per power of two, so percentiles are
+ * within about 12%). Values are kept since startup.
+ *
+ * After {@link #start()} everything is visible over JMX as
+ * "ctrl:type=Metrics" (e.g. in JConsole) and written to cache/metrics.txt
+ * every METRICS_DUMP_SECONDS (default 60) and at exit.
+ */
+public class Metrics {
+
+    private static final Path DUMP_FILE = Paths.get("cache", "metrics.txt");
+    private static final long DUMP_SECONDS = Math.max(5, EnvLoader.getLong("METRICS_DUMP_SECONDS", 60));
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<Map<String, Object>>> sources = new ConcurrentHashMap<>();
+
+    private static boolean started = false;
+
+    /**
+     * A count that only goes up, e.g. failed requests.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Latency distribution with p50, p99 and max, in milliseconds.
+     */
+    public static final class Histogram {
+        // Bucket i covers a range of microseconds; 8 sub-buckets per power of two, up to ~3 days
+        private static final int SUB_BITS = 3;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 38;
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        /**
+         * @param startNanos a System.nanoTime() taken when the operation began
+         */
+        public void recordSince(long startNanos) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * @param nanos how long the operation took
+         */
+        public void recordNanos(long nanos) {
+            long micros = Math.max(0, nanos / 1_000);
+            buckets.incrementAndGet(indexOf(micros));
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        /**
+         * @param quantile e.g. 0.99
+         * @return upper bound of the bucket holding that quantile, in ms (0 if empty)
+         */
+        public double percentileMillis(double quantile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(quantile * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(upperBoundOf(i), maxMicros.get()) / 1000.0;
+                }
+            }
+            return maxMicros.get() / 1000.0;
+        }
+
+        public double maxMillis() {
+            return maxMicros.get() / 1000.0;
+        }
+
+        public double meanMillis() {
+            long n = count.get();
+            return (n == 0) ? 0 : totalMicros.get() / 1000.0 / n;
+        }
+
+        private static int indexOf(long micros) {
+            if (micros < SUB_COUNT) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        private static long upperBoundOf(int index) {
+            if (index < SUB_COUNT) {
+                return index;
+            }
+            int exponent = index / SUB_COUNT + SUB_BITS - 1;
+            int sub = index % SUB_COUNT;
+            long width = 1L << (exponent - SUB_BITS);
+            return ((SUB_COUNT + sub) * width) + width - 1;
+        }
+    }
+
+    /**
+     * @param name e.g. "http.weather.errors"
+     * @return the counter with that name, created on first use
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * @param name e.g. "journal.save"
+     * @return the histogram with that name, created on first use
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Registers a value that is read whenever metrics are reported, e.g. a queue size.
+     * @param name e.g. "journal.pendingSync"
+     * @param value read on every snapshot
+     */
+    public static void gauge(String name, Supplier<? extends Number> value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Registers a group of values that a class already keeps itself, e.g.
+     * TaskScheduler.getMetrics(); each key is reported as prefix + "." + key.
+     * @param prefix e.g. "tasks"
+     * @param values read on every snapshot
+     */
+    public static void source(String prefix, Supplier<Map<String, Object>> values) {
+        sources.put(prefix, values);
+    }
+
+    /**
+     * @return every metric by name, sorted; histograms appear as name.count,
+     *         name.p50Ms, name.p99Ms, name.maxMs and name.meanMs
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> all = new TreeMap<>();
+        counters.forEach((name, c) -> all.put(name, c.get()));
+        histograms.forEach((name, h) -> {
+            all.put(name + ".count", h.count());
+            all.put(name + ".p50Ms", h.percentileMillis(0.50));
+            all.put(name + ".p99Ms", h.percentileMillis(0.99));
+            all.put(name + ".maxMs", h.maxMillis());
+            all.put(name + ".meanMs", h.meanMillis());
+        });
+        gauges.forEach((name, g) -> {
+            try {
+                all.put(name, g.get());
+            } catch (RuntimeException e) {
+                all.put(name, "error: " + e.getMessage());
+            }
+        });
+        sources.forEach((prefix, s) -> {
+            try {
+                s.get().forEach((key, value) -> all.put(prefix + "." + key,
+                        (value instanceof Number || value instanceof String) ? value : String.valueOf(value)));
+            } catch (RuntimeException e) {
+                all.put(prefix, "error: " + e.getMessage());
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Publishes the metrics over JMX and starts the periodic dump. Safe to call more than once.
+     */
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        // 1. JMX
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("ctrl:type=Metrics"));
+        } catch (Exception e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+
+        // 2. File dump, and a last one on exit
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(Metrics::dump, DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(Metrics::dump, "metrics-dump-shutdown"));
+    }
+
+    /**
+     * Writes the current snapshot to cache/metrics.txt, one "name value" per line.
+     */
+    public static void dump() {
+        StringBuilder sb = new StringBuilder("# ").append(LocalDateTime.now()).append('\n');
+        snapshot().forEach((name, value) -> sb.append(name).append(' ').append(value).append('\n'));
+        try {
+            Files.createDirectories(DUMP_FILE.getParent());
+            Path temp = DUMP_FILE.resolveSibling("metrics.txt.tmp");
+            Files.writeString(temp, sb, StandardCharsets.UTF_8);
+            Files.move(temp, DUMP_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write metrics: " + e.getMessage());
+        }
+    }
+
+    // Every metric as a read-only JMX attribute; the list follows whatever has been registered so far
+    private static final class Bean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Object> all = snapshot();
+            AttributeList list = new AttributeList();
+            for (String name : attributes) {
+                if (all.containsKey(name)) {
+                    list.add(new Attribute(name, all.get(name)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            snapshot().forEach((name, value) -> attributes.add(new MBeanAttributeInfo(
+                    name, value.getClass().getName(), name, true, false, false)));
+            return new MBeanInfo(Metrics.class.getName(), "Application metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
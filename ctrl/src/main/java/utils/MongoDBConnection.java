@@ -6,8 +6,13 @@ package utils;
 
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import java.util.Map;
+import journalpage.JournalMigration;
+import org.bson.Document;
 
 /**
  * MongoDB connection utility for journal storage.
@@ -60,6 +65,7 @@ public class MongoDBConnection {
                         mongoClient = MongoClients.create(connectionString);
                         database = mongoClient.getDatabase(DATABASE_NAME);
                         System.out.println("Successfully connected to MongoDB.");
+                        bootstrapInBackground(database);
                     } catch (Exception e) {
                         System.err.println("Error connecting to MongoDB: " + e.getMessage());
                         System.err.println("Please check: 1) MONGODB_URI is set in .env file or environment, 2) Network connectivity, 3) MongoDB Atlas whitelist settings");
@@ -71,6 +77,81 @@ public class MongoDBConnection {
         return database;
     }
     
+    /**
+     * Connects and sends a ping, so DNS lookup, TLS handshake and
+     * authentication are done before the first real query.
+     */
+    public static void warmUp() {
+        long start = System.nanoTime();
+        try {
+            getDatabase().runCommand(new Document("ping", 1));
+            Metrics.histogram("mongo.warmUp").recordSince(start);
+        } catch (RuntimeException e) {
+            Metrics.counter("mongo.warmUp.errors").increment();
+            System.err.println("MongoDB warm-up failed: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the connection on a background thread so the TLS handshake and
+     * index bootstrap are done before the first screen needs them.
+     * Should be called once when the application starts.
+     */
+    public static void connectInBackground() {
+        Thread t = new Thread(() -> {
+            try {
+                warmUp();
+            } catch (RuntimeException e) {
+                // Already logged; callers will retry lazily
+            }
+        }, "mongo-connect");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Creates the journal indexes and runs pending migrations without
+     * blocking the caller. Index creation is idempotent, so this is safe to
+     * run on every start.
+     */
+    private static void bootstrapInBackground(MongoDatabase db) {
+        Thread t = new Thread(() -> {
+            try {
+                MongoCollection<Document> journals = db.getCollection("journals");
+                ensureJournalIndexes(journals);
+                JournalMigration.migrateEpochDays(journals);
+            } catch (Exception e) {
+                System.err.println("Journal index bootstrap failed: " + e.getMessage());
+            }
+        }, "mongo-bootstrap");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * One entry per user per day: lookups and upserts on (email, date) become
+     * index point reads, and range queries on the typed epochDay field become
+     * index scans. (email, syncedAt) serves the journal sync pulls.
+     */
+    private static void ensureJournalIndexes(MongoCollection<Document> journals) {
+        try {
+            journals.createIndex(
+                    Indexes.ascending("email", "date"),
+                    new IndexOptions().unique(true).name("email_date_unique"));
+        } catch (Exception e) {
+            // Usually duplicate (email, date) documents left by older versions
+            System.err.println("Could not create unique (email, date) index: " + e.getMessage());
+        }
+        journals.createIndex(
+                Indexes.ascending("email", "epochDay"),
+                new IndexOptions().name("email_epochDay"));
+        journals.createIndex(
+                Indexes.ascending("email", "syncedAt"),
+                new IndexOptions().name("email_syncedAt"));
+        System.out.println("Journal indexes are ready.");
+    }
+
     /**
      * Closes the MongoDB connection.
      * Should be called when the application shuts down.
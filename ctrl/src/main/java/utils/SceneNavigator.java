@@ -0,0 +1,154 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+/**
+ * Moves between the app's screens.
+ *
+ * Each FXML file is loaded once; its root and controller are cached and
+ * reused on later visits. The stage keeps a single Scene and only its root
+ * is swapped, so CSS and the scene graph do not have to be rebuilt.
+ * Controllers implementing ScreenLifecycle are told when they are shown
+ * and hidden.
+ */
+public class SceneNavigator {
+
+    public enum Screen {
+        LOGIN("/registration/Login.fxml"),
+        REGISTER("/registration/Register.fxml"),
+        LANDING("/LandingPage.fxml"),
+        EDITOR("/journalpage/JournalEditor.fxml"),
+        SUMMARY("/summary/Summary.fxml");
+
+        private final String fxml;
+        private final Metrics.Histogram loadTime;
+        private final Metrics.Histogram showTime;
+
+        Screen(String fxml) {
+            this.fxml = fxml;
+            this.loadTime = Metrics.histogram("screen.load." + name().toLowerCase());
+            this.showTime = Metrics.histogram("screen.show." + name().toLowerCase());
+        }
+    }
+
+    private record LoadedScreen(Parent root, Object controller) {
+    }
+
+    private static final Map<Screen, LoadedScreen> cache = new ConcurrentHashMap<>();
+
+    private static Stage stage;
+    private static Screen current;
+
+    /**
+     * @param primaryStage the window all screens are shown in
+     */
+    public static void init(Stage primaryStage) {
+        stage = primaryStage;
+    }
+
+    /**
+     * Shows a screen, loading it on the first visit. FX thread only.
+     * @param <T> controller type
+     * @param screen the screen to show
+     * @return the screen's controller, or null if it could not be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T show(Screen screen) {
+        long start = System.nanoTime();
+        LoadedScreen next = load(screen);
+        if (next == null) {
+            return null;
+        }
+
+        // 1. Let the old screen save its state
+        if (current != null && current != screen && cache.get(current) != null
+                && cache.get(current).controller() instanceof ScreenLifecycle old) {
+            old.onHide();
+        }
+
+        // 2. Swap the root of the one Scene
+        Scene scene = stage.getScene();
+        if (scene == null) {
+            stage.setScene(new Scene(next.root()));
+        } else if (scene.getRoot() != next.root()) {
+            scene.setRoot(next.root());
+        }
+        current = screen;
+
+        // 3. Refresh the new screen
+        if (next.controller() instanceof ScreenLifecycle shown) {
+            shown.onShow();
+        }
+        screen.showTime.recordSince(start);
+        System.out.println("Showed " + screen + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return (T) next.controller();
+    }
+
+    /**
+     * Loads a screen into the cache without showing it. May be called from
+     * any thread, so screens can be built in parallel during startup.
+     * @param screen the screen to load
+     */
+    public static void preload(Screen screen) {
+        load(screen);
+    }
+
+    /**
+     * @return the screen currently shown, or null before the first show
+     */
+    public static Screen getCurrent() {
+        return current;
+    }
+
+    /**
+     * Drops cached screens that hold the signed-in user's data (landing,
+     * editor, summary), so the next user starts from fresh controllers.
+     * Call it after navigating away from them, so they get their onHide().
+     */
+    public static void clearUserScreens() {
+        cache.remove(Screen.LANDING);
+        cache.remove(Screen.EDITOR);
+        cache.remove(Screen.SUMMARY);
+    }
+
+    private static LoadedScreen load(Screen screen) {
+        LoadedScreen loaded = cache.get(screen);
+        if (loaded != null) {
+            return loaded;
+        }
+        // One lock per screen: different screens can load at the same time
+        synchronized (screen) {
+            loaded = cache.get(screen);
+            if (loaded != null) {
+                return loaded;
+            }
+            return loadNow(screen);
+        }
+    }
+
+    private static LoadedScreen loadNow(Screen screen) {
+        LoadedScreen loaded;
+        try {
+            long start = System.nanoTime();
+            FXMLLoader loader = new FXMLLoader(SceneNavigator.class.getResource(screen.fxml));
+            Parent root = loader.load();
+            loaded = new LoadedScreen(root, loader.getController());
+            cache.put(screen, loaded);
+            screen.loadTime.recordSince(start);
+            System.out.println("Loaded " + screen.fxml + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return loaded;
+        } catch (IOException e) {
+            System.err.println("Error loading " + screen.fxml + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+
+/**
+ * Implemented by controllers of screens shown through SceneNavigator.
+ * Screens are loaded once and then reused, so initialize() only runs the
+ * first time; anything that has to be fresh on every visit belongs in
+ * onShow().
+ */
+public interface ScreenLifecycle {
+
+    /**
+     * Called every time the screen becomes visible, including the first time.
+     */
+    default void onShow() {
+    }
+
+    /**
+     * Called when another screen replaces this one.
+     */
+    default void onHide() {
+    }
+}
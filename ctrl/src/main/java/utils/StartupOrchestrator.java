@@ -0,0 +1,154 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent parts of application startup in parallel.
+ *
+ * Each phase runs on a small bounded pool and is timed from the moment the
+ * orchestrator was created. Milestones such as "first frame" can be marked
+ * from any thread. When every phase has finished, the breakdown is logged
+ * once and the pool is shut down.
+ */
+public class StartupOrchestrator {
+
+    private final long origin = System.nanoTime();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService executor;
+
+    private final Map<String, long[]> timings = new LinkedHashMap<>();   // name -> {start ms, end ms}
+    private final List<CompletableFuture<?>> phases = new ArrayList<>();
+
+    /**
+     * @param threads how many phases may run at the same time
+     */
+    public StartupOrchestrator(int threads) {
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread t = new Thread(runnable, "startup-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts a phase that produces a value.
+     * @param <T> result type
+     * @param name label in the timing log
+     * @param work the phase
+     * @return future completed with the phase's result
+     */
+    public <T> CompletableFuture<T> supply(String name, Supplier<T> work) {
+        CompletableFuture<T> phase = CompletableFuture.supplyAsync(() -> timed(name, work), executor);
+        track(phase);
+        return phase;
+    }
+
+    /**
+     * Starts a phase without a result.
+     * @param name label in the timing log
+     * @param work the phase
+     * @return future completed when the phase is done
+     */
+    public CompletableFuture<Void> run(String name, Runnable work) {
+        return supply(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Starts a phase once another one has finished (successfully or not).
+     * @param dependency the phase to wait for
+     * @param name label in the timing log
+     * @param work the phase
+     * @return future completed when the phase is done
+     */
+    public CompletableFuture<Void> runAfter(CompletableFuture<?> dependency, String name, Runnable work) {
+        CompletableFuture<Void> phase = dependency.handle((result, error) -> null)
+                .thenRunAsync(() -> timed(name, () -> {
+                    work.run();
+                    return null;
+                }), executor);
+        track(phase);
+        return phase;
+    }
+
+    /**
+     * Records a point in time, e.g. when the first screen was shown.
+     * @param name label in the timing log
+     */
+    public void mark(String name) {
+        long now = elapsedMillis();
+        synchronized (timings) {
+            timings.put(name, new long[]{now, now});
+        }
+    }
+
+    /**
+     * Logs the breakdown once every phase started so far has finished.
+     * @return future completed after logging
+     */
+    public CompletableFuture<Void> finish() {
+        CompletableFuture<?>[] all;
+        synchronized (phases) {
+            all = phases.toArray(new CompletableFuture<?>[0]);
+        }
+        return CompletableFuture.allOf(all)
+                .handle((ignored, error) -> {
+                    logBreakdown();
+                    executor.shutdown();
+                    return null;
+                });
+    }
+
+    private <T> T timed(String name, Supplier<T> work) {
+        long start = elapsedMillis();
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            System.err.println("Startup phase '" + name + "' failed: " + e.getMessage());
+            throw e;
+        } finally {
+            synchronized (timings) {
+                timings.put(name, new long[]{start, elapsedMillis()});
+            }
+        }
+    }
+
+    private void track(CompletableFuture<?> phase) {
+        synchronized (phases) {
+            phases.add(phase);
+        }
+    }
+
+    private void logBreakdown() {
+        StringBuilder sb = new StringBuilder("Startup timing (ms since launch):");
+        synchronized (timings) {
+            timings.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(a.getValue()[1], b.getValue()[1]))
+                    .forEach(e -> {
+                        long[] t = e.getValue();
+                        sb.append(String.format("%n  %-16s %6d", e.getKey(), t[1]));
+                        if (t[1] > t[0]) {
+                            sb.append(String.format("  (took %d, started at %d)", t[1] - t[0], t[0]));
+                        }
+                    });
+        }
+        System.out.println(sb);
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - origin) / 1_000_000;
+    }
+}
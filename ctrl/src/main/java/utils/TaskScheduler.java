@@ -0,0 +1,271 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+
+/**
+ * Background work for the screens.
+ *
+ * I/O (HTTP, MongoDB, files) runs on virtual threads, one per task, so
+ * waiting costs next to nothing. CPU work runs on a small pool of platform
+ * threads (one per core, minus one for the FX thread). Both are daemon
+ * threads and every task is named after its screen and key.
+ *
+ * Screens submit through a {@link Scope}. Each task has a key, e.g.
+ * "weather": submitting again under the same key cancels the previous task,
+ * so repeated clicks never leave several tasks racing to update the same
+ * label. Results are delivered on the FX thread, and only if the task is
+ * still the latest for its key. Controllers call {@link Scope#cancelAll()}
+ * from onHide(), so nothing lands on a screen that is no longer shown.
+ */
+public class TaskScheduler {
+
+    public enum Kind { IO, CPU }
+
+    private static final int CPU_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private static final ExecutorService io = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("io-", 1).factory());
+
+    private static final AtomicInteger cpuThreadCount = new AtomicInteger();
+    private static final ExecutorService cpu = Executors.newFixedThreadPool(CPU_THREADS, runnable -> {
+        Thread t = new Thread(runnable, "cpu-" + cpuThreadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Map<Kind, Stats> stats = Map.of(Kind.IO, new Stats(), Kind.CPU, new Stats());
+
+    static {
+        Metrics.source("tasks", TaskScheduler::getMetrics);
+    }
+
+    // Counters per executor; wait is submit -> start, run is start -> end
+    private static final class Stats {
+        final LongAdder submitted = new LongAdder();
+        final LongAdder started = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder runNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicLong maxRunNanos = new AtomicLong();
+    }
+
+    /**
+     * @param name the screen, used in thread names and logs
+     * @return a new scope for that screen's tasks
+     */
+    public static Scope scope(String name) {
+        return new Scope(name);
+    }
+
+    /**
+     * Tasks belonging to one screen. Use it from the FX thread.
+     */
+    public static final class Scope {
+
+        private final String name;
+        private final Map<String, Task<?>> latest = new ConcurrentHashMap<>();
+
+        private Scope(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Runs blocking I/O on a virtual thread.
+         * @param <T> result type
+         * @param key slot of the task; an earlier task with the same key is cancelled
+         * @param work the work, off the FX thread
+         * @param onResult called on the FX thread with the result
+         * @param onError called on the FX thread if the work throws (may be null)
+         * @return future of the result, cancelled if the task is superseded
+         */
+        public <T> CompletableFuture<T> io(String key, Callable<T> work, Consumer<T> onResult, Consumer<Throwable> onError) {
+            return submit(Kind.IO, key, work, onResult, onError);
+        }
+
+        /**
+         * Runs computation on the CPU pool.
+         * @param <T> result type
+         * @param key slot of the task; an earlier task with the same key is cancelled
+         * @param work the work, off the FX thread
+         * @param onResult called on the FX thread with the result
+         * @param onError called on the FX thread if the work throws (may be null)
+         * @return future of the result, cancelled if the task is superseded
+         */
+        public <T> CompletableFuture<T> cpu(String key, Callable<T> work, Consumer<T> onResult, Consumer<Throwable> onError) {
+            return submit(Kind.CPU, key, work, onResult, onError);
+        }
+
+        /**
+         * Cancels every task of this screen; their callbacks will not run.
+         * The scope stays usable for the next visit.
+         */
+        public void cancelAll() {
+            for (String key : latest.keySet()) {
+                Task<?> task = latest.remove(key);
+                if (task != null) {
+                    task.cancel();
+                }
+            }
+        }
+
+        private <T> CompletableFuture<T> submit(Kind kind, String key, Callable<T> work,
+                Consumer<T> onResult, Consumer<Throwable> onError) {
+            Task<T> task = new Task<>(kind, name + "/" + key, work);
+            Task<?> previous = latest.put(key, task);
+            if (previous != null) {
+                previous.cancel(); // Latest click wins
+            }
+
+            task.result.whenComplete((value, error) -> Platform.runLater(() -> {
+                // Superseded or cancelled by onHide(): nobody wants this anymore
+                if (!latest.remove(key, task)) {
+                    return;
+                }
+                if (error == null) {
+                    onResult.accept(value);
+                } else {
+                    Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+                    if (cause instanceof CancellationException) {
+                        return;
+                    }
+                    if (onError != null) {
+                        onError.accept(cause);
+                    } else {
+                        System.err.println("Task " + task.label + " failed: " + cause.getMessage());
+                    }
+                }
+            }));
+            task.start();
+            return task.result;
+        }
+    }
+
+    private static final class Task<T> {
+
+        final Kind kind;
+        final String label;
+        final Callable<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicBoolean claimed = new AtomicBoolean();   // Set by whoever gets there first: the worker or cancel()
+        final long submittedAt = System.nanoTime();
+        volatile Future<?> future;
+
+        Task(Kind kind, String label, Callable<T> work) {
+            this.kind = kind;
+            this.label = label;
+            this.work = work;
+        }
+
+        void start() {
+            Stats s = stats.get(kind);
+            s.submitted.increment();
+            s.queued.incrementAndGet();
+            future = (kind == Kind.IO ? io : cpu).submit(this::run);
+        }
+
+        private void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return; // Cancelled while queued (already counted)
+            }
+            Stats s = stats.get(kind);
+            long start = System.nanoTime();
+            s.queued.decrementAndGet();
+            s.started.increment();
+            s.running.incrementAndGet();
+            record(s.waitNanos, s.maxWaitNanos, start - submittedAt);
+
+            Thread thread = Thread.currentThread();
+            String threadName = thread.getName();
+            thread.setName(threadName + " " + label);
+            try {
+                T value = work.call();
+                if (result.complete(value)) {
+                    s.completed.increment();
+                }
+            } catch (InterruptedException | CancellationException e) {
+                result.cancel(false);
+                s.cancelled.increment();
+            } catch (Throwable e) {
+                if (result.isCancelled()) {
+                    s.cancelled.increment(); // Failed because it was interrupted
+                } else {
+                    result.completeExceptionally(e);
+                    s.failed.increment();
+                }
+            } finally {
+                thread.setName(threadName);
+                Thread.interrupted(); // Don't leak a cancel() interrupt into the pool thread's next task
+                s.running.decrementAndGet();
+                record(s.runNanos, s.maxRunNanos, System.nanoTime() - start);
+            }
+        }
+
+        void cancel() {
+            result.cancel(false);
+            if (claimed.compareAndSet(false, true)) {
+                // Never started: drop it from the queue
+                Stats s = stats.get(kind);
+                s.queued.decrementAndGet();
+                s.cancelled.increment();
+                if (future != null) {
+                    future.cancel(false);
+                }
+            } else if (future != null) {
+                future.cancel(true); // Running: interrupt blocking I/O
+            }
+        }
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Queue depth, throughput and latency per executor, e.g. for logging.
+     * @return "io.queued", "cpu.avgRunMs" and so on
+     */
+    public static Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (Kind kind : Kind.values()) {
+            Stats s = stats.get(kind);
+            String p = kind.name().toLowerCase() + ".";
+            long started = Math.max(1, s.started.sum());
+            long finished = Math.max(1, s.started.sum() - s.running.get());
+            metrics.put(p + "submitted", s.submitted.sum());
+            metrics.put(p + "queued", s.queued.get());
+            metrics.put(p + "running", s.running.get());
+            metrics.put(p + "completed", s.completed.sum());
+            metrics.put(p + "failed", s.failed.sum());
+            metrics.put(p + "cancelled", s.cancelled.sum());
+            metrics.put(p + "avgWaitMs", s.waitNanos.sum() / started / 1_000_000.0);
+            metrics.put(p + "maxWaitMs", s.maxWaitNanos.get() / 1_000_000.0);
+            metrics.put(p + "avgRunMs", s.runNanos.sum() / finished / 1_000_000.0);
+            metrics.put(p + "maxRunMs", s.maxRunNanos.get() / 1_000_000.0);
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,184 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.event.Event;
+import javafx.scene.input.InputEvent;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * Decides how hard the background video may work.
+ *
+ * PAUSED   - window minimized, video not on the current screen (editor,
+ *            summary) or no input for VIDEO_IDLE_MINUTES (default 3);
+ *            a still poster is shown instead
+ * REDUCED  - window visible but not focused; plays at
+ *            VIDEO_UNFOCUSED_RATE_PERCENT (default 50) of normal speed
+ * PLAYING  - everything else
+ * Players hidden for more than VIDEO_RELEASE_MINUTES (default 5) while
+ * paused are disposed to free their decoders' memory.
+ */
+public class VideoPowerGovernor {
+
+    public enum Mode { PLAYING, REDUCED, PAUSED }
+
+    private static final long IDLE_MILLIS = EnvLoader.getLong("VIDEO_IDLE_MINUTES", 3) * 60_000L;
+    private static final long RELEASE_MILLIS = EnvLoader.getLong("VIDEO_RELEASE_MINUTES", 5) * 60_000L;
+    private static final double UNFOCUSED_RATE = Math.max(10, Math.min(100,
+            EnvLoader.getLong("VIDEO_UNFOCUSED_RATE_PERCENT", 50))) / 100.0;
+
+    // FX thread only
+    private static Stage stage;
+    private static Mode mode = null;
+    private static String reason = "";
+    private static long modeSince = System.currentTimeMillis();
+    private static long lastInput = System.currentTimeMillis();
+    private static boolean released = false;
+
+    // Metrics (FX thread only)
+    private static final Map<Mode, Long> transitions = new EnumMap<>(Mode.class);
+    private static final Map<Mode, Long> millisIn = new EnumMap<>(Mode.class);
+    private static long decisions = 0;
+    private static long playersReleased = 0;
+
+    // Copy of the above for other threads, replaced after every evaluation
+    private record Snapshot(Mode mode, String reason, long modeSince, Map<Mode, Long> transitions,
+            Map<Mode, Long> millisIn, long decisions, long playersReleased) {}
+    private static volatile Snapshot snapshot = new Snapshot(null, "", modeSince, Map.of(), Map.of(), 0, 0);
+
+    /**
+     * Starts watching the stage. Call once, on the FX thread.
+     * @param primaryStage the application's window
+     */
+    public static void install(Stage primaryStage) {
+        if (stage != null) {
+            return;
+        }
+        stage = primaryStage;
+        Metrics.source("video", VideoPowerGovernor::getMetrics);
+
+        // 1. React immediately to window and screen changes
+        stage.iconifiedProperty().addListener((obs, was, is) -> evaluate());
+        stage.focusedProperty().addListener((obs, was, is) -> evaluate());
+        stage.sceneProperty().addListener((obs, was, is) -> evaluate());
+        GlobalVideoManager.layerSceneProperty().addListener((obs, was, is) -> evaluate());
+
+        // 2. Any input counts as activity
+        stage.addEventFilter(InputEvent.ANY, VideoPowerGovernor::onInput);
+
+        // 3. Idle and memory checks don't need to be precise
+        Timeline tick = new Timeline(new KeyFrame(Duration.seconds(5), event -> evaluate()));
+        tick.setCycleCount(Timeline.INDEFINITE);
+        tick.play();
+
+        evaluate();
+    }
+
+    /**
+     * @return the current decision, or null before install
+     */
+    public static Mode getMode() {
+        return snapshot.mode();
+    }
+
+    /**
+     * @return decision metrics: current mode and reason, transitions and
+     * milliseconds spent per mode, total evaluations, players released.
+     * Safe to call from any thread: reads the last published snapshot.
+     */
+    public static Map<String, Object> getMetrics() {
+        Snapshot s = snapshot;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mode", s.mode());
+        metrics.put("reason", s.reason());
+        for (Mode m : Mode.values()) {
+            long ms = s.millisIn().getOrDefault(m, 0L) + (m == s.mode() ? System.currentTimeMillis() - s.modeSince() : 0);
+            metrics.put("transitions." + m.name().toLowerCase(), s.transitions().getOrDefault(m, 0L));
+            metrics.put("ms." + m.name().toLowerCase(), ms);
+        }
+        metrics.put("decisions", s.decisions());
+        metrics.put("playersReleased", s.playersReleased());
+        return metrics;
+    }
+
+    private static void onInput(Event event) {
+        lastInput = System.currentTimeMillis();
+        if (mode == Mode.PAUSED && reason.equals("idle")) {
+            evaluate();
+        }
+    }
+
+    private static void evaluate() {
+        decisions++;
+        long now = System.currentTimeMillis();
+
+        Mode next;
+        String why;
+        if (stage.isIconified()) {
+            next = Mode.PAUSED;
+            why = "minimized";
+        } else if (!GlobalVideoManager.isShowingIn(stage.getScene())) {
+            next = Mode.PAUSED;
+            why = "hidden";
+        } else if (now - lastInput > IDLE_MILLIS) {
+            next = Mode.PAUSED;
+            why = "idle";
+        } else if (!stage.isFocused()) {
+            next = Mode.REDUCED;
+            why = "unfocused";
+        } else {
+            next = Mode.PLAYING;
+            why = "active";
+        }
+
+        if (next == Mode.PAUSED && mode == Mode.PAUSED) {
+            // Long pauses also give back the memory of the other players
+            if (!released && now - modeSince > RELEASE_MILLIS) {
+                released = true;
+                playersReleased += GlobalVideoManager.releaseHiddenPlayers();
+            }
+        }
+        if (next != mode || !why.equals(reason)) {
+            apply(next, why, now);
+        }
+        publish();
+    }
+
+    // FX thread: hands a consistent copy of the state to getMetrics()
+    private static void publish() {
+        snapshot = new Snapshot(mode, reason, modeSince, Map.copyOf(transitions), Map.copyOf(millisIn),
+                decisions, playersReleased);
+    }
+
+    private static void apply(Mode next, String why, long now) {
+        if (next != mode) {
+            if (mode != null) {
+                millisIn.merge(mode, now - modeSince, Long::sum);
+            }
+            transitions.merge(next, 1L, Long::sum);
+            modeSince = now;
+        }
+        System.out.println("Background video: " + next + " (" + why + ")");
+
+        switch (next) {
+            case PAUSED -> GlobalVideoManager.suspend();
+            case REDUCED -> GlobalVideoManager.resume(UNFOCUSED_RATE);
+            case PLAYING -> GlobalVideoManager.resume(1.0);
+        }
+
+        // Players released during a long pause are loaded again in the background
+        if (next != Mode.PAUSED && released) {
+            released = false;
+            GlobalVideoManager.preload();
+        }
+        mode = next;
+        reason = why;
+    }
+}
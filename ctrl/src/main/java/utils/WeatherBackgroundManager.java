@@ -8,65 +8,104 @@ package utils;
 import weather.API_Get;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
 
 public class WeatherBackgroundManager {
-    // --- CACHING VARIABLES ---
-    private static String cachedWeather = null;
+    // Used until a user picks a location (WEATHER_DEFAULT_LOCATION in .env)
+    static final String DEFAULT_LOCATION = EnvLoader.get("WEATHER_DEFAULT_LOCATION", "WP Kuala Lumpur");
+
+    private static final String BASE_URL = "https://api.data.gov.my/weather/forecast/";
 
     // Original method - gets today's weather
     public static String getCurrentWeather() {
         return getWeatherForDate(LocalDate.now());
     }
 
-    // NEW METHOD - gets weather for a specific date
+    // NEW METHOD - gets weather for a specific date at the user's location (cached, see WeatherService)
     public static String getWeatherForDate(LocalDate date) {
-        // Note: Caching is less useful here since we're querying different dates
-        // But we can still use it for the most recently queried date
-        
-        API_Get api = new API_Get();
-        try {
-            System.out.println("Fetching weather for date: " + date);
-            
-            // Format the date as YYYY-MM-DD
-            String dateString = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
-            
-            // Build the URL dynamically
-            String baseUrl = "https://api.data.gov.my/weather/forecast/";
-            String queryParams = "?contains=WP%20Kuala%20Lumpur@location__location_name";
-            String dateFilter = "&filter=" + dateString + "@date";
-            
-            // Combine them
-            String getUrl = baseUrl + queryParams + dateFilter;
-            String getResponse = api.get(getUrl);
-            System.out.println(getResponse);
-            
-            JSONArray jsonArray = new JSONArray(getResponse);
-            
-            if (jsonArray.length() == 0) {
-                System.out.println("No weather data found for " + dateString);
-                return "Unknown";
-            }
-            
-            JSONObject firstItem = jsonArray.getJSONObject(0);
-            String summary = firstItem.getString("summary_forecast");
-            
-            String weather = API_Get.translateForecast(summary);
-            
-            // Update cache if this is today's date
-            if (date.equals(LocalDate.now())) {
-                cachedWeather = weather;
-                System.currentTimeMillis();
+        return WeatherService.getWeather(date);
+    }
+
+    /**
+     * Fetches the forecast for a single location and day.
+     * @param location forecast location name
+     * @param date the day
+     * @return translated forecast, or "Unknown" if the API has none
+     * @throws Exception if the request fails
+     */
+    static String fetchDay(String location, LocalDate date) throws Exception {
+        System.out.println("Fetching weather for " + location + " on " + date);
+
+        // Format the date as YYYY-MM-DD
+        String dateString = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+        String getUrl = BASE_URL + "?contains=" + encode(location) + "@location__location_name"
+                + "&filter=" + dateString + "@date";
+
+        JSONArray jsonArray = new JSONArray(new API_Get().get(getUrl));
+        if (jsonArray.length() == 0) {
+            System.out.println("No weather data found for " + dateString);
+            return "Unknown";
+        }
+
+        JSONObject firstItem = jsonArray.getJSONObject(0);
+        return API_Get.translateForecast(firstItem.getString("summary_forecast"));
+    }
+
+    /**
+     * Fetches every day from {@code from} to {@code to} for all the given
+     * locations in one request.
+     * @param locations forecast location names
+     * @param from first day (inclusive)
+     * @param to last day (inclusive)
+     * @return location -> (day -> translated forecast); days without data are missing
+     * @throws Exception if the request fails
+     */
+    static Map<String, Map<LocalDate, String>> fetchForecast(Collection<String> locations, LocalDate from, LocalDate to)
+            throws Exception {
+        System.out.println("Fetching weather for " + locations + " from " + from + " to " + to);
+
+        // 1. One query: comma-separated names, whole date range
+        StringJoiner names = new StringJoiner(",");
+        for (String location : locations) {
+            names.add(encode(location));
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        String getUrl = BASE_URL + "?contains=" + names + "@location__location_name"
+                + "&date_start=" + from.format(DateTimeFormatter.ISO_LOCAL_DATE) + "@date"
+                + "&date_end=" + to.format(DateTimeFormatter.ISO_LOCAL_DATE) + "@date"
+                + "&limit=" + (days * locations.size() * 4); // Room for partial name matches
+
+        // 2. Sort the rows back into the locations that asked for them
+        JSONArray jsonArray = new JSONArray(new API_Get().get(getUrl));
+        Map<String, Map<LocalDate, String>> forecasts = new HashMap<>();
+        for (int i = 0; i < jsonArray.length(); i++) {
+            JSONObject item = jsonArray.getJSONObject(i);
+            String name = item.getJSONObject("location").getString("location_name");
+            LocalDate date = LocalDate.parse(item.getString("date"));
+            String weather = API_Get.translateForecast(item.getString("summary_forecast"));
+
+            for (String location : locations) {
+                Map<LocalDate, String> forecast = forecasts.computeIfAbsent(location, k -> new HashMap<>());
+                if (name.equalsIgnoreCase(location)) {
+                    forecast.put(date, weather);            // An exact name always wins
+                } else if (name.toLowerCase().contains(location.toLowerCase())) {
+                    forecast.putIfAbsent(date, weather);    // Otherwise the first match, like "contains"
+                }
             }
-            
-            return weather;
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            // If API fails, return default or cached weather
-            return (cachedWeather != null) ? cachedWeather : "Cloudy";
         }
+        return forecasts;
+    }
+
+    private static String encode(String location) {
+        return URLEncoder.encode(location, StandardCharsets.UTF_8).replace("+", "%20");
     }
 
     public static String getVideoFileForWeather(String weather) {
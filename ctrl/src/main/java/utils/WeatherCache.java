@@ -0,0 +1,152 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of translated forecasts keyed by (location, date).
+ *
+ * Tier 1 is a map in memory, tier 2 is cache/weather-cache.txt with one
+ * "location TAB date TAB weather TAB fetchedAt" line per fetch, so results
+ * survive restarts. The forecast for a date that has already passed no
+ * longer changes and is kept for good; today's and future dates expire
+ * after WEATHER_TTL_MINUTES (default 60).
+ */
+public class WeatherCache {
+
+    private static final Path CACHE_FILE = Paths.get("cache", "weather-cache.txt");
+    private static final long TTL_MILLIS = EnvLoader.getLong("WEATHER_TTL_MINUTES", 60) * 60_000L;
+
+    private static Map<String, Entry> entries = null; // loaded on first use
+
+    private record Entry(String weather, long fetchedAt) {
+    }
+
+    /**
+     * @param location forecast location name, e.g. "WP Kuala Lumpur"
+     * @param date the day
+     * @return the cached weather if it is still fresh, otherwise null
+     */
+    public static synchronized String get(String location, LocalDate date) {
+        Entry entry = load().get(keyFor(location, date));
+        if (entry == null || !isFresh(entry, date)) {
+            return null;
+        }
+        return entry.weather();
+    }
+
+    /**
+     * @param location forecast location name
+     * @param date the day
+     * @return the cached weather even if it has expired, or null if never fetched
+     */
+    public static synchronized String getStale(String location, LocalDate date) {
+        Entry entry = load().get(keyFor(location, date));
+        return (entry == null) ? null : entry.weather();
+    }
+
+    /**
+     * Stores a freshly fetched forecast in both tiers.
+     * @param location forecast location name
+     * @param date the day
+     * @param weather translated forecast, e.g. "Rain"
+     */
+    public static synchronized void put(String location, LocalDate date, String weather) {
+        if (weather == null) {
+            return;
+        }
+        Entry entry = new Entry(weather, System.currentTimeMillis());
+        load().put(keyFor(location, date), entry);
+        try {
+            Files.createDirectories(CACHE_FILE.getParent());
+            try (BufferedWriter bw = Files.newBufferedWriter(CACHE_FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                bw.write(lineFor(keyFor(location, date), entry));
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not persist weather cache: " + e.getMessage());
+        }
+    }
+
+    private static boolean isFresh(Entry entry, LocalDate date) {
+        // "Unknown" for a past day usually means the API had nothing yet, so it still expires
+        if (date.isBefore(LocalDate.now()) && !entry.weather().equals("Unknown")) {
+            return true;
+        }
+        return System.currentTimeMillis() - entry.fetchedAt() < TTL_MILLIS;
+    }
+
+    private static Map<String, Entry> load() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new HashMap<>();
+        if (!Files.exists(CACHE_FILE)) {
+            return entries;
+        }
+
+        int lines = 0;
+        try (BufferedReader br = Files.newBufferedReader(CACHE_FILE, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue;
+                }
+                try {
+                    // Later lines win
+                    entries.put(parts[0] + "\t" + parts[1], new Entry(parts[2], Long.parseLong(parts[3])));
+                    lines++;
+                } catch (NumberFormatException e) {
+                    // Skip a torn line
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read weather cache: " + e.getMessage());
+            return entries;
+        }
+
+        // Every refresh appends a line; rewrite the file once it is mostly old values
+        if (lines > 64 && lines > entries.size() * 2) {
+            compact();
+        }
+        return entries;
+    }
+
+    private static void compact() {
+        Path temp = CACHE_FILE.resolveSibling("weather-cache.txt.tmp");
+        try {
+            try (BufferedWriter bw = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    bw.write(lineFor(e.getKey(), e.getValue()));
+                    bw.newLine();
+                }
+            }
+            Files.move(temp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not compact weather cache: " + e.getMessage());
+        }
+    }
+
+    private static String keyFor(String location, LocalDate date) {
+        return location + "\t" + date;
+    }
+
+    private static String lineFor(String key, Entry entry) {
+        return key + "\t" + entry.weather() + "\t" + entry.fetchedAt();
+    }
+}
@@ -0,0 +1,263 @@
+package utils;
+/**
+ *
+ * @author ekitstrap
+ */
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Weather lookups with a 7-day prefetch for every active location.
+ *
+ * One request fetches the whole forecast window (today + 6 days) for all
+ * active locations into WeatherCache, so users in the same location share
+ * it. Expired values are returned immediately while a refresh runs in the
+ * background (stale-while-revalidate), and a scheduled refresher re-fetches
+ * the window every WEATHER_REFRESH_MINUTES (default 30). Listeners are told
+ * whenever today's weather for the current location changes.
+ */
+public class WeatherService {
+
+    public static final int FORECAST_DAYS = 7;
+
+    private static final long REFRESH_MINUTES = Math.max(1, EnvLoader.getLong("WEATHER_REFRESH_MINUTES", 30));
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread t = new Thread(runnable, "weather-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicReference<CompletableFuture<Void>> inFlight = new AtomicReference<>();
+
+    // Locations included in every bulk refresh
+    private static final Set<String> activeLocations = ConcurrentHashMap.newKeySet();
+    private static volatile String currentLocation = WeatherBackgroundManager.DEFAULT_LOCATION;
+
+    private static volatile String lastTodayWeather = null;
+    private static volatile boolean started = false;
+
+    static {
+        activeLocations.add(WeatherBackgroundManager.DEFAULT_LOCATION);
+    }
+
+    /**
+     * Fetches the forecast now and starts the scheduled refresher. Safe to
+     * call more than once.
+     * @return future completed when the first fetch is done
+     */
+    public static synchronized CompletableFuture<Void> start() {
+        if (!started) {
+            started = true;
+            scheduler.scheduleWithFixedDelay(WeatherService::refreshAsync, REFRESH_MINUTES, REFRESH_MINUTES, TimeUnit.MINUTES);
+        }
+        return refreshAsync();
+    }
+
+    /**
+     * Registers a listener for today's weather at the current location. It is
+     * called right away if today's weather is already known and again on
+     * every change (on the refresher thread).
+     * @param listener receives the translated forecast, e.g. "Rain"
+     */
+    public static void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+        String known = lastTodayWeather;
+        if (known != null) {
+            listener.accept(known);
+        }
+    }
+
+    /**
+     * Adds locations to the bulk refresh, e.g. every location some user has chosen.
+     * @param locations forecast location names
+     */
+    public static void addActiveLocations(Collection<String> locations) {
+        boolean added = false;
+        for (String location : locations) {
+            if (location != null && !location.isBlank()) {
+                added |= activeLocations.add(location);
+            }
+        }
+        if (added && started) {
+            refreshAsync();
+        }
+    }
+
+    /**
+     * Sets the location used by {@link #getWeather(LocalDate)}, normally the
+     * signed-in user's. Listeners hear about the new location's weather.
+     * @param location forecast location name, or null for the default
+     */
+    public static void setCurrentLocation(String location) {
+        if (location == null || location.isBlank()) {
+            location = WeatherBackgroundManager.DEFAULT_LOCATION;
+        }
+        if (location.equals(currentLocation)) {
+            return;
+        }
+        currentLocation = location;
+        addActiveLocations(List.of(location));
+
+        String cached = WeatherCache.getStale(location, LocalDate.now());
+        if (cached != null) {
+            scheduler.execute(() -> notifyListeners(cached));
+        }
+    }
+
+    /**
+     * @return the location used by {@link #getWeather(LocalDate)}
+     */
+    public static String getCurrentLocation() {
+        return currentLocation;
+    }
+
+    /**
+     * Returns the weather at the current location.
+     * @param date the day
+     * @return translated forecast, e.g. "Sunny"
+     */
+    public static String getWeather(LocalDate date) {
+        return getWeather(currentLocation, date);
+    }
+
+    /**
+     * Returns the weather for a location and date, from the cache whenever possible.
+     * @param location forecast location name
+     * @param date the day
+     * @return translated forecast, e.g. "Sunny"
+     */
+    public static String getWeather(String location, LocalDate date) {
+        // 1. Fresh cache hit
+        String fresh = WeatherCache.get(location, date);
+        if (fresh != null) {
+            return fresh;
+        }
+
+        // 2. Stale hit: answer now, refresh behind the caller
+        String stale = WeatherCache.getStale(location, date);
+        if (stale != null) {
+            if (inWindow(date)) {
+                refreshAsync();
+            } else {
+                scheduler.execute(() -> fetchDayQuietly(location, date));
+            }
+            return stale;
+        }
+
+        // 3. Miss: the caller has to wait
+        try {
+            if (inWindow(date)) {
+                addActiveLocations(List.of(location));
+                refreshAsync().join();
+                String weather = WeatherCache.getStale(location, date);
+                if (weather != null) {
+                    return weather;
+                }
+            }
+            return fetchDay(location, date);
+        } catch (Exception e) {
+            System.err.println("Weather lookup failed for " + location + " on " + date + ": " + e.getMessage());
+            return (lastTodayWeather != null) ? lastTodayWeather : "Cloudy";
+        }
+    }
+
+    /**
+     * Re-fetches the forecast window for all active locations in the
+     * background. Concurrent callers share the same request.
+     * @return future completed when the cache has been updated
+     */
+    public static CompletableFuture<Void> refreshAsync() {
+        while (true) {
+            CompletableFuture<Void> current = inFlight.get();
+            if (current != null) {
+                return current;
+            }
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                scheduler.execute(() -> {
+                    try {
+                        refreshWindow();
+                        inFlight.set(null);
+                        mine.complete(null);
+                    } catch (Exception e) {
+                        System.err.println("Weather refresh failed: " + e.getMessage());
+                        inFlight.set(null);
+                        mine.completeExceptionally(e);
+                    }
+                });
+                return mine;
+            }
+        }
+    }
+
+    private static void refreshWindow() throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate last = today.plusDays(FORECAST_DAYS - 1);
+        List<String> locations = new ArrayList<>(activeLocations);
+
+        // 1. One request for every location and the whole window
+        Map<String, Map<LocalDate, String>> forecasts = WeatherBackgroundManager.fetchForecast(locations, today, last);
+
+        // 2. Cache every day; days the API left out are "Unknown" until the next refresh
+        for (String location : locations) {
+            Map<LocalDate, String> forecast = forecasts.getOrDefault(location, Map.of());
+            for (LocalDate date = today; !date.isAfter(last); date = date.plusDays(1)) {
+                WeatherCache.put(location, date, forecast.getOrDefault(date, "Unknown"));
+            }
+        }
+
+        // 3. Tell listeners if today's weather changed where the user is
+        String todayWeather = forecasts.getOrDefault(currentLocation, Map.of()).get(today);
+        if (todayWeather != null) {
+            notifyListeners(todayWeather);
+        }
+    }
+
+    private static void notifyListeners(String todayWeather) {
+        if (todayWeather.equals(lastTodayWeather)) {
+            return;
+        }
+        lastTodayWeather = todayWeather;
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(todayWeather);
+            } catch (RuntimeException e) {
+                System.err.println("Weather listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Dates outside the forecast window are still fetched one at a time
+    private static String fetchDay(String location, LocalDate date) throws Exception {
+        String weather = WeatherBackgroundManager.fetchDay(location, date);
+        WeatherCache.put(location, date, weather);
+        return weather;
+    }
+
+    private static void fetchDayQuietly(String location, LocalDate date) {
+        try {
+            fetchDay(location, date);
+        } catch (Exception e) {
+            System.err.println("Weather refresh failed for " + location + " on " + date + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean inWindow(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        return !date.isBefore(today) && date.isBefore(today.plusDays(FORECAST_DAYS));
+    }
+}
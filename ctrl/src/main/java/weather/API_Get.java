@@ -5,13 +5,19 @@ package weather;
  * @author ekitstrap
  */
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import utils.HttpService;
+import utils.Metrics;
 
 public class API_Get {
 
+    // Weather lookups are small; don't let a slow server hold a thread for long
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Metrics.Histogram LATENCY = Metrics.histogram("http.weather");
+    private static final Metrics.Counter ERRORS = Metrics.counter("http.weather.errors");
+
     /**
      * Sends a GET request to the specified API URL.
      *
@@ -20,28 +26,31 @@ public class API_Get {
      * @throws Exception if the request fails
      */
     public String get(String apiURL) throws Exception {
-        URL url = new URL(apiURL);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-        // Set HTTP method and headers
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("Accept", "application/json");
-
-        // Check for successful response
-        if (conn.getResponseCode() != 200) {
-            throw new RuntimeException("GET failed. HTTP error code: " + conn.getResponseCode());
-        }
-
-        // Read response
-        BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        StringBuilder sb = new StringBuilder();
-        String output;
-        while ((output = br.readLine()) != null) {
-            sb.append(output);
+        long start = System.nanoTime();
+        try {
+            return HttpService.get(apiURL, TIMEOUT);
+        } catch (Exception e) {
+            ERRORS.increment();
+            throw e;
+        } finally {
+            LATENCY.recordSince(start);
         }
+    }
 
-        conn.disconnect();
-        return sb.toString();
+    /**
+     * Sends a GET request without blocking the caller.
+     *
+     * @param apiURL the URL to send the GET request to
+     * @return future completed with the response body
+     */
+    public CompletableFuture<String> getAsync(String apiURL) {
+        long start = System.nanoTime();
+        return HttpService.getAsync(apiURL, TIMEOUT).whenComplete((body, error) -> {
+            LATENCY.recordSince(start);
+            if (error != null) {
+                ERRORS.increment();
+            }
+        });
     }
 
     public static String translateForecast(String malayForecast) {
@@ -0,0 +1,174 @@
+package journalpage;
+/**
+ *
+ * @author xuzhe
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * What a user's journal log remembers across restarts: which entries still
+ * need a push once acks and pulls have crossed newer local edits, what a
+ * pull may overwrite, and what survives compaction or a lost newline.
+ */
+class LocalJournalStoreTest {
+
+    private static final String EMAIL = "a@example.com";
+    private static final LocalDate DAY1 = LocalDate.of(2026, 1, 1);
+    private static final LocalDate DAY2 = LocalDate.of(2026, 1, 2);
+    private static final LocalDate DAY3 = LocalDate.of(2026, 1, 3);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayRestoresEntriesAcksAndWatermark() {
+        LocalJournalStore store = new LocalJournalStore(EMAIL, dir);
+        store.put(DAY1, "first", "Sunny", "Positive");
+        store.put(DAY2, "second", "Rainy", "Negative");
+        store.markSynced(DAY1.toString(), LocalJournalStore.updatedAtOf(store.get(DAY1)));
+        store.mergeRemote(new Document("date", DAY3.toString()).append("entry", "remote")
+                .append("weather", "Cloudy").append("mood", "Neutral").append("updatedAt", 5L));
+        store.setPullWatermark(1234);
+
+        LocalJournalStore reopened = new LocalJournalStore(EMAIL, dir);
+        assertEquals("first", reopened.get(DAY1).getString("entry"));
+        assertEquals("Negative", reopened.get(DAY2).getString("mood"));
+        assertEquals("remote", reopened.get(DAY3).getString("entry"));
+        assertEquals(List.of("second"), entriesOf(reopened.getDirtyEntries()));
+        assertTrue(reopened.isHydrated());
+        assertEquals(1234, reopened.getPullWatermark());
+    }
+
+    @Test
+    void ackForSupersededEditKeepsEntryDirty() {
+        LocalJournalStore store = new LocalJournalStore(EMAIL, dir);
+        store.put(DAY1, "pushed", "Sunny", "Positive");
+        long pushed = LocalJournalStore.updatedAtOf(store.get(DAY1));
+        store.put(DAY1, "typed during the push", "Sunny", "Positive");
+
+        // The ack for the first version arrives after the second was saved
+        store.markSynced(DAY1.toString(), pushed);
+
+        LocalJournalStore reopened = new LocalJournalStore(EMAIL, dir);
+        assertEquals(List.of("typed during the push"), entriesOf(reopened.getDirtyEntries()));
+    }
+
+    @Test
+    void pullNeverOverwritesUnpushedEdit() {
+        LocalJournalStore store = new LocalJournalStore(EMAIL, dir);
+        store.put(DAY1, "local", "Sunny", "Positive");
+        long local = LocalJournalStore.updatedAtOf(store.get(DAY1));
+
+        // 1. A newer version from another device loses while ours is not pushed
+        store.mergeRemote(remote(DAY1, "other device", local + 1000));
+        assertEquals("local", store.get(DAY1).getString("entry"));
+
+        // 2. Once pushed, an older version is ignored and a newer one wins
+        store.markSynced(DAY1.toString(), local);
+        store.mergeRemote(remote(DAY1, "stale", local - 1000));
+        assertEquals("local", store.get(DAY1).getString("entry"));
+        store.mergeRemote(remote(DAY1, "other device", local + 1000));
+
+        LocalJournalStore reopened = new LocalJournalStore(EMAIL, dir);
+        assertEquals("other device", reopened.get(DAY1).getString("entry"));
+        assertTrue(reopened.getDirtyEntries().isEmpty());
+    }
+
+    @Test
+    void remoteEntryWithBadDateIsSkipped() {
+        LocalJournalStore store = new LocalJournalStore(EMAIL, dir);
+        store.mergeRemote(new Document("date", "2026-13-01").append("entry", "bad").append("updatedAt", 5L));
+        store.mergeRemote(new Document("date", DAY1.toString()).append("entry", "good").append("updatedAt", 6L));
+
+        LocalJournalStore reopened = new LocalJournalStore(EMAIL, dir);
+        assertEquals("good", reopened.get(DAY1).getString("entry"));
+        assertTrue(reopened.getDirtyEntries().isEmpty());
+    }
+
+    @Test
+    void watermarkFromOlderLogIsIgnored() throws IOException {
+        // Before the watermark was server time, it was the highest updatedAt seen
+        Path log = logOf(new LocalJournalStore(EMAIL, dir));
+        Files.writeString(log, "{\"op\": \"pull\", \"watermark\": 99}\n");
+
+        LocalJournalStore reopened = new LocalJournalStore(EMAIL, dir);
+        assertFalse(reopened.isHydrated()); // One full pull, then a server-time watermark
+    }
+
+    @Test
+    void appendAfterLostNewlineSurvivesReplay() throws IOException {
+        LocalJournalStore store = new LocalJournalStore(EMAIL, dir);
+        store.put(DAY1, "first", "Sunny", "Positive");
+        Path log = logOf(store);
+
+        // The record made it to disk, its newline did not
+        byte[] bytes = Files.readAllBytes(log);
+        Files.write(log, Arrays.copyOf(bytes, bytes.length - 1));
+
+        new LocalJournalStore(EMAIL, dir).put(DAY2, "second", "Rainy", "Negative");
+
+        LocalJournalStore reopened = new LocalJournalStore(EMAIL, dir);
+        assertEquals("first", reopened.get(DAY1).getString("entry"));
+        assertEquals("second", reopened.get(DAY2).getString("entry"));
+    }
+
+    @Test
+    void compactionKeepsDirtyAndAckedState() throws IOException {
+        LocalJournalStore store = new LocalJournalStore(EMAIL, dir);
+
+        // 1. Many versions of two days, one pushed and one not, plus a pulled day
+        for (int i = 0; i < 300; i++) {
+            store.put(i % 2 == 0 ? DAY1 : DAY2, "edit " + i, "Sunny", "Positive");
+        }
+        store.markSynced(DAY1.toString(), LocalJournalStore.updatedAtOf(store.get(DAY1)));
+        store.mergeRemote(remote(DAY3, "remote", 5L));
+        store.setPullWatermark(77); // Compacts: far more records than entries
+
+        // 2. One line per entry plus the pull, and the same state after a restart
+        assertEquals(4, Files.readAllLines(logOf(store)).size());
+        LocalJournalStore reopened = new LocalJournalStore(EMAIL, dir);
+        assertEquals("edit 298", reopened.get(DAY1).getString("entry"));
+        assertEquals(List.of("edit 299"), entriesOf(reopened.getDirtyEntries()));
+        assertEquals("remote", reopened.get(DAY3).getString("entry"));
+        assertEquals(77, reopened.getPullWatermark());
+
+        // 3. The compacted log takes appends
+        reopened.put(DAY3, "after", "Rainy", "Negative");
+        assertEquals("after", new LocalJournalStore(EMAIL, dir).get(DAY3).getString("entry"));
+    }
+
+    private Path logOf(LocalJournalStore store) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log"))
+                    .findFirst()
+                    .orElseThrow(() -> new IOException("no log for " + store.getEmail()));
+        }
+    }
+
+    private static Document remote(LocalDate date, String entry, long updatedAt) {
+        return new Document("date", date.toString()).append("entry", entry)
+                .append("weather", "Cloudy").append("mood", "Neutral").append("updatedAt", updatedAt);
+    }
+
+    private static List<String> entriesOf(List<Document> docs) {
+        List<String> entries = new ArrayList<>();
+        for (Document doc : docs) {
+            entries.add(doc.getString("entry"));
+        }
+        return entries;
+    }
+}
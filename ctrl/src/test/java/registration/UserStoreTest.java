@@ -0,0 +1,159 @@
+package registration;
+/**
+ *
+ * @author chee
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * UserStore with several instances sharing UserData.txt/UserData.log in a
+ * temporary directory, the way several app windows do. Covers records
+ * another writer has not finished (or never will), decisions made against
+ * the other instances' writes, and a reader whose snapshot is replaced.
+ */
+class UserStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysLogOverSnapshot() throws IOException {
+        Files.writeString(dir.resolve("UserData.txt"),
+                "a@example.com\nAnn\nhashA\nsaltA\nb@example.com\nBob\nhashB\nsaltB");
+        Files.writeString(dir.resolve("UserData.log"),
+                "PUT\ta@example.com\tAnnie\thashA2\tsaltA2\n"
+                + "DEL\tb@example.com\n"
+                + "PUT\tc@example.com\tCarl\\tTab\thashC\tsaltC\n");
+
+        UserStore store = new UserStore(dir, 1000);
+
+        assertEquals(2, store.size());
+        User a = store.get("A@Example.com");
+        assertEquals("Annie", a.getDisplayName());
+        assertEquals("hashA2", a.getPassword());
+        assertEquals("saltA2", a.getSalt());
+        assertNull(store.get("b@example.com"));
+        assertEquals("Carl\tTab", store.get("c@example.com").getDisplayName());
+    }
+
+    @Test
+    void recordTornInsideSaltIsCutOff() throws IOException {
+        // A crash after all five fields had started: only the newline says the salt is incomplete
+        Path log = dir.resolve("UserData.log");
+        Files.writeString(log, "PUT\ta@example.com\tAnn\thashA\tsaltA\n"
+                + "PUT\tb@example.com\tBob\thashB\tsal");
+
+        UserStore store = new UserStore(dir, 1000);
+        assertNull(store.get("b@example.com"));
+        assertTrue(store.create(user("c@example.com", "Carl")));
+
+        // Ending the torn line would have replayed Bob with salt "sal"
+        UserStore reopened = new UserStore(dir, 1000);
+        assertNull(reopened.get("b@example.com"));
+        assertEquals(2, reopened.size());
+        assertEquals("PUT\ta@example.com\tAnn\thashA\tsaltA\n"
+                + "PUT\tc@example.com\tCarl\thash-c@example.com\tsalt\n", Files.readString(log));
+    }
+
+    @Test
+    void recordIsReadOnlyOnceComplete() throws IOException {
+        UserStore store = new UserStore(dir, 1000);
+        Path log = dir.resolve("UserData.log");
+
+        // Another instance halfway through appending a record
+        Files.writeString(log, "PUT\tb@example.com\tBo", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        assertNull(store.get("b@example.com"));
+
+        Files.writeString(log, "b\thashB\tsaltB\n", StandardOpenOption.APPEND);
+        assertEquals("Bob", store.get("b@example.com").getDisplayName());
+
+        // Our own next append goes after it, not over it
+        assertTrue(store.create(user("c@example.com", "Carl")));
+        assertEquals(2, new UserStore(dir, 1000).size());
+    }
+
+    @Test
+    void createIsDecidedAgainstOtherInstances() {
+        UserStore first = new UserStore(dir, 1000);
+        UserStore second = new UserStore(dir, 1000); // Loaded before the account existed
+
+        assertTrue(first.create(user("a@example.com", "Ann")));
+        assertFalse(second.create(user("A@example.com", "Impostor")));
+        assertEquals("Ann", second.get("a@example.com").getDisplayName());
+
+        assertTrue(second.delete("a@example.com"));
+        assertNull(first.get("a@example.com"));
+        assertTrue(first.create(user("a@example.com", "Ann again")));
+    }
+
+    @Test
+    void rehashKeepsNameEditedMeanwhile() {
+        UserStore store = new UserStore(dir, 1000);
+        User read = user("a@example.com", "Ann");
+        assertTrue(store.create(read));
+
+        store.put(new User("a@example.com", "Annie", read.getPassword(), read.getSalt()));
+        assertTrue(store.rehash(read, "newHash", "newSalt"));
+
+        User current = store.get("a@example.com");
+        assertEquals("Annie", current.getDisplayName());
+        assertEquals("newHash", current.getPassword());
+
+        // A password changed meanwhile is not overwritten
+        store.put(new User("a@example.com", "Annie", "changed", "salt2"));
+        assertFalse(store.rehash(current, "otherHash", "otherSalt"));
+        assertEquals("changed", store.get("a@example.com").getPassword());
+    }
+
+    @Test
+    void otherInstanceWritesAfterCompactionWithoutCuttingRecords() throws Exception {
+        UserStore other = new UserStore(dir, 1000); // Loaded before the snapshot was replaced
+        UserStore store = new UserStore(dir, 16);
+        Path log = dir.resolve("UserData.log");
+
+        // 1. Enough accounts for the log to be compacted into a new snapshot
+        int users = 60;
+        for (int i = 0; i < users; i++) {
+            assertTrue(store.create(user("u" + i + "@example.com", "User")));
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (recordsIn(log) > 16 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(recordsIn(log) <= 16);
+        assertTrue(Files.exists(dir.resolve("UserData.txt")));
+        store.put(user("u5@example.com", "Renamed"));
+
+        // 2. The other instance must reload, not read the shorter log from its old offset
+        // (which would also make it cut the log back to that offset before appending)
+        assertTrue(other.create(user("late@example.com", "Late")));
+        assertFalse(other.create(user("u59@example.com", "Taken")));
+
+        for (UserStore view : List.of(store, other, new UserStore(dir, 1000))) {
+            assertEquals(users + 1, view.size());
+            assertEquals("Renamed", view.get("u5@example.com").getDisplayName());
+            assertEquals("User", view.get("u59@example.com").getDisplayName());
+            assertNotNull(view.get("late@example.com"));
+        }
+    }
+
+    private static int recordsIn(Path log) throws IOException {
+        return Files.readAllLines(log).size();
+    }
+
+    private static User user(String email, String name) {
+        return new User(email, name, "hash-" + email, "salt");
+    }
+}